@@ -1,5 +1,6 @@
 package at.ac.tuwien.sepr.assignment.individual.config;
 
+import at.ac.tuwien.sepr.assignment.individual.rest.HorseEndpoint;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -15,12 +16,13 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class WebConfig implements WebMvcConfigurer {
 
   /**
-   * Configures CORS to allow all origins and HTTP methods.
+   * Configures CORS to allow all origins and HTTP methods, and lets clients read the cursor of the next page of horses.
    *
    * @param registry the {@link CorsRegistry} to configure
    */
   @Override
   public void addCorsMappings(CorsRegistry registry) {
-    registry.addMapping("/**").allowedMethods("GET", "POST", "OPTIONS", "HEAD", "DELETE", "PUT", "PATCH");
+    registry.addMapping("/**").allowedMethods("GET", "POST", "OPTIONS", "HEAD", "DELETE", "PUT", "PATCH")
+        .exposedHeaders(HorseEndpoint.NEXT_CURSOR_HEADER);
   }
 }
@@ -0,0 +1,30 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Represents a Data Transfer Object (DTO) for one horse of a batch of horses to create.
+ * Its parents can be existing horses, referenced by their ID, and horses of the same batch, referenced by their temporary ID.
+ *
+ * @param temporaryId the ID assigned by the client, that other horses of the batch refer to this horse by, null if none does
+ * @param name the name of the horse
+ * @param description the description of the horse
+ * @param dateOfBirth the date of birth of the horse
+ * @param sex the sex of the horse
+ * @param ownerId the ID of the owner of the horse
+ * @param parentIds the IDs of the existing parents of the horse
+ * @param parentTemporaryIds the temporary IDs of the parents of the horse, that are created in the same batch
+ */
+public record HorseBatchCreateDto(
+    String temporaryId,
+    String name,
+    String description,
+    LocalDate dateOfBirth,
+    Sex sex,
+    Long ownerId,
+    List<Long> parentIds,
+    List<String> parentTemporaryIds
+) {
+}
@@ -0,0 +1,17 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+/**
+ * DTO for representing a common ancestor of two horses.
+ *
+ * @param id the ID of the common ancestor
+ * @param name the name of the common ancestor
+ * @param firstDistance the number of generations between the first horse and the common ancestor
+ * @param secondDistance the number of generations between the second horse and the common ancestor
+ */
+public record HorseCommonAncestorDto(
+    Long id,
+    String name,
+    int firstDistance,
+    int secondDistance
+) {
+}
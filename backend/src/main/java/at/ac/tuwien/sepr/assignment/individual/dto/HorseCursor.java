@@ -0,0 +1,73 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position in a list of horses, after which the next page of the list starts.
+ * It is passed to clients as an opaque token, and is made of the sort key and the ID of the last horse of the previous page,
+ * so the next page is found by comparing keys instead of skipping horses.
+ *
+ * @param sort the order of the list
+ * @param id the ID of the last horse of the previous page
+ * @param name the name of the last horse of the previous page, if the list is ordered by name
+ * @param dateOfBirth the date of birth of the last horse of the previous page, if the list is ordered by date of birth
+ */
+public record HorseCursor(
+    HorseSort sort,
+    long id,
+    String name,
+    LocalDate dateOfBirth
+) {
+
+  /**
+   * Creates the cursor after the given horse.
+   *
+   * @param sort the order of the list
+   * @param horse the last horse of the page
+   * @return the cursor of the next page
+   */
+  public static HorseCursor after(HorseSort sort, HorseListDto horse) {
+    return new HorseCursor(sort, horse.id(),
+        sort == HorseSort.NAME ? horse.name() : null,
+        sort == HorseSort.DATE_OF_BIRTH ? horse.dateOfBirth() : null);
+  }
+
+  /**
+   * Decodes a cursor from its token, used when binding request parameters.
+   *
+   * @param token the token, as created by {@link #toToken()}
+   * @return the cursor
+   * @throws IllegalArgumentException if the token is not a valid cursor
+   */
+  public static HorseCursor valueOf(String token) {
+    try {
+      var parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 3);
+      var sort = HorseSort.valueOf(parts[0]);
+      long id = Long.parseLong(parts[1]);
+      return switch (sort) {
+        case ID -> new HorseCursor(sort, id, null, null);
+        case NAME -> new HorseCursor(sort, id, parts[2], null);
+        case DATE_OF_BIRTH -> new HorseCursor(sort, id, null, LocalDate.parse(parts[2]));
+      };
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + token, e);
+    }
+  }
+
+  /**
+   * Encodes the cursor as an opaque token.
+   *
+   * @return the token, safe to be used in URLs
+   */
+  public String toToken() {
+    var key = switch (sort) {
+      case ID -> "";
+      case NAME -> ":" + name;
+      case DATE_OF_BIRTH -> ":" + dateOfBirth;
+    };
+    return Base64.getUrlEncoder().withoutPadding().encodeToString((sort + ":" + id + key).getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,19 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO for representing a horse in the flat list of descendants of another horse.
+ * The tree can be rebuilt from the generation and the IDs of the parents within the list.
+ */
+public record HorseDescendantDto(
+    Long id,
+    String name,
+    LocalDate dateOfBirth,
+    Sex sex,
+    int generation,
+    List<Long> parentIds
+) {
+}
@@ -0,0 +1,19 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * DTO to bundle the query parameters used for filtering the descendants of a horse.
+ * Each field can be null, in which case this field is not filtered by.
+ * Horses not matching the filter are left out of the result, but their descendants are still included.
+ */
+public record HorseDescendantSearchDto(
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    LocalDate bornAfter,
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    LocalDate bornBefore,
+    Sex sex
+) {
+}
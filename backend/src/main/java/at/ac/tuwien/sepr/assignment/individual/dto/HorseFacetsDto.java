@@ -0,0 +1,23 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.util.Map;
+
+/**
+ * DTO for representing the number of horses by sex, by decade of birth and by owner.
+ * Values without any horse are left out.
+ *
+ * @param total the number of horses
+ * @param sexes the number of horses by sex
+ * @param birthDecades the number of horses by the first year of the decade they were born in, e.g. 2010 for 2010 to 2019
+ * @param owners the number of horses by the ID of their owner
+ * @param withoutOwner the number of horses without an owner
+ */
+public record HorseFacetsDto(
+    long total,
+    Map<Sex, Long> sexes,
+    Map<Integer, Long> birthDecades,
+    Map<Long, Long> owners,
+    long withoutOwner
+) {
+}
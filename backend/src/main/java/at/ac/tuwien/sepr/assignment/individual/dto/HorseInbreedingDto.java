@@ -0,0 +1,15 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+/**
+ * DTO for representing Wright's coefficient of inbreeding of a horse.
+ *
+ * @param id the ID of the horse
+ * @param generations the number of generations of ancestors taken into account
+ * @param coefficient the coefficient of inbreeding, between 0 and 1
+ */
+public record HorseInbreedingDto(
+    Long id,
+    int generations,
+    double coefficient
+) {
+}
@@ -0,0 +1,16 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for a list of horses, whose owners are side-loaded instead of embedded into every horse.
+ *
+ * @param horses the horses, in the order of the list
+ * @param owners the owners of the horses by their ID, every owner only once
+ */
+public record HorseListWithOwnersDto(
+    List<HorseSummaryDto> horses,
+    Map<Long, OwnerDto> owners
+) {
+}
@@ -0,0 +1,28 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * DTO to bundle the query parameters restricting the candidates when searching for parents,
+ * so only horses that are valid parents for the child are suggested.
+ * Each field can be null, in which case this field is not filtered by.
+ *
+ * @param childId the ID of the child, if it is already persisted; the child itself and its descendants are never suggested
+ * @param childBirthDate the date of birth of the child, parents must be born before it;
+ *     defaults to the persisted date of birth of the child with {@code childId}
+ * @param sex the sex the parent must have, i.e. the opposite sex of the other parent
+ * @param excludeIds the IDs of horses not to suggest, e.g. the other parent
+ * @param fuzzy whether to fill up the suggestions with horses whose name is within a small edit distance of the searched name
+ */
+public record HorseParentSearchDto(
+    Long childId,
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    LocalDate childBirthDate,
+    Sex sex,
+    List<Long> excludeIds,
+    Boolean fuzzy
+) {
+}
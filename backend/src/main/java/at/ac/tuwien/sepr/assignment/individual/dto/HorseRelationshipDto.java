@@ -0,0 +1,19 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import java.util.List;
+
+/**
+ * DTO for representing how two horses are related.
+ *
+ * @param firstId the ID of the first horse
+ * @param secondId the ID of the second horse
+ * @param relationship what the first horse is to the second one, e.g. "half-siblings" or "grandparent"
+ * @param commonAncestors the closest common ancestors of both horses, empty if they are unrelated
+ */
+public record HorseRelationshipDto(
+    Long firstId,
+    Long secondId,
+    String relationship,
+    List<HorseCommonAncestorDto> commonAncestors
+) {
+}
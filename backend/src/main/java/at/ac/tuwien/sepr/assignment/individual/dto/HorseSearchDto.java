@@ -1,12 +1,24 @@
 package at.ac.tuwien.sepr.assignment.individual.dto;
 
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import java.time.LocalDate;
+import java.util.List;
 import org.springframework.format.annotation.DateTimeFormat;
 
 /**
  * DTO to bundle the query parameters used in searching horses.
  * Each field can be null, in which case this field is not filtered by.
+ * If a full-text {@code query} is given, only horses whose description contains at least one of its words are returned,
+ * ranked by relevance instead of ordered by ID.
+ * Otherwise, if {@code fuzzy} is true, the name matches names within a small edit distance instead of substrings,
+ * and horses are ordered by that distance, so misspelled names are still found.
+ * The multi-valued filters {@code ownerIds} and {@code birthYearFrom} to {@code birthYearTo} match horses having any of the owners,
+ * resp. born in any year of the range including its bounds, and are combined with the filters by owner name and birth date.
+ * Horses are born strictly after {@code bornAfter} and strictly before {@code bornBefore}, so both together filter by a range of dates.
+ * Horses that are not ranked are listed in the order given by {@code sort}, by ID if it is null.
+ * A page of at most {@code limit} of them starts after the {@code cursor} returned with the previous page,
+ * and continues the order of the previous page.
  */
 public record HorseSearchDto(
     String name,
@@ -15,6 +27,22 @@ public record HorseSearchDto(
     LocalDate bornBefore,
     Sex sex,
     String ownerName,
-    Integer limit
+    Integer limit,
+    String query,
+    Boolean fuzzy,
+    List<Long> ownerIds,
+    Integer birthYearFrom,
+    Integer birthYearTo,
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    LocalDate bornAfter,
+    HorseSort sort,
+    HorseCursor cursor
 ) {
+
+  /**
+   * Creates search parameters without a full-text query, without fuzzy matching and without multi-valued filters.
+   */
+  public HorseSearchDto(String name, String description, LocalDate bornBefore, Sex sex, String ownerName, Integer limit) {
+    this(name, description, bornBefore, sex, ownerName, limit, null, null, null, null, null, null, null, null);
+  }
 }
@@ -0,0 +1,18 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+
+/**
+ * Represents a Data Transfer Object (DTO) for listing a horse, that refers to its owner by ID only.
+ * The owner itself is part of the enclosing {@link HorseListWithOwnersDto}, so it is sent once for all of its horses.
+ */
+public record HorseSummaryDto(
+    Long id,
+    String name,
+    String description,
+    LocalDate dateOfBirth,
+    Sex sex,
+    Long ownerId
+) {
+}
@@ -5,7 +5,7 @@ package at.ac.tuwien.sepr.assignment.individual.dto;
  * An owner, whose name has {@code name} as a substring is considered matched.
  *
  * @param name substring of the owner's name
- * @param maxAmount the maximum number of owners to return, even if there are more matches
+ * @param maxAmount the maximum number of owners to return, even if there are more matches, null for a default maximum
  */
 public record OwnerSearchDto(
     String name,
@@ -0,0 +1,23 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+/**
+ * DTO for representing the statistics of the cache of horse search results.
+ *
+ * @param hits the number of searches answered from the cache
+ * @param misses the number of searches that had to be run
+ * @param hitRatio the share of the searches answered from the cache, between 0 and 1
+ * @param evictions the number of results removed to keep the cache within its size and memory bounds
+ * @param size the number of results currently in the cache
+ * @param estimatedBytes the estimated memory taken by the results currently in the cache
+ * @param generation the number of invalidations of the cache by writes so far
+ */
+public record SearchCacheStatsDto(
+    long hits,
+    long misses,
+    double hitRatio,
+    long evictions,
+    int size,
+    long estimatedBytes,
+    long generation
+) {
+}
@@ -0,0 +1,97 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Index from the values of an attribute to the bitmap of the ordinals having that value.
+ * Every ordinal has at most one value, ordinals without a value are in no bitmap.
+ *
+ * <p>
+ * The index is not thread-safe, concurrent access has to be synchronized externally.
+ * </p>
+ *
+ * @param <K> the type of the values of the attribute
+ */
+public class BitmapIndex<K extends Comparable<K>> {
+  private final NavigableMap<K, OrdinalBitmap> bitmaps = new TreeMap<>();
+  private final Map<Integer, K> values = new HashMap<>();
+
+  /**
+   * Set the value of an ordinal, replacing its previous value.
+   *
+   * @param ordinal the ordinal
+   * @param value the value, null if the ordinal has no value
+   */
+  public void put(int ordinal, K value) {
+    remove(ordinal);
+    if (value != null) {
+      values.put(ordinal, value);
+      bitmaps.computeIfAbsent(value, key -> new OrdinalBitmap()).add(ordinal);
+    }
+  }
+
+  /**
+   * Remove the value of an ordinal.
+   *
+   * @param ordinal the ordinal
+   */
+  public void remove(int ordinal) {
+    K previous = values.remove(ordinal);
+    if (previous != null) {
+      OrdinalBitmap bitmap = bitmaps.get(previous);
+      bitmap.remove(ordinal);
+      if (bitmap.cardinality() == 0) {
+        bitmaps.remove(previous);
+      }
+    }
+  }
+
+  /**
+   * Get the value of an ordinal.
+   *
+   * @param ordinal the ordinal
+   * @return the value, or null if the ordinal has no value
+   */
+  public K get(int ordinal) {
+    return values.get(ordinal);
+  }
+
+  /**
+   * Get the ordinals having any of the given values.
+   *
+   * @param keys the values
+   * @return a new bitmap of the union of the ordinals of every value
+   */
+  public OrdinalBitmap anyOf(Collection<K> keys) {
+    OrdinalBitmap result = new OrdinalBitmap();
+    for (var key : keys) {
+      OrdinalBitmap bitmap = key == null ? null : bitmaps.get(key);
+      if (bitmap != null) {
+        result = result.or(bitmap);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Get the ordinals having a value within a range.
+   *
+   * @param from the lowest value of the range, null for no lower bound
+   * @param to the highest value of the range, null for no upper bound
+   * @return a new bitmap of the union of the ordinals of every value within the range, including its bounds
+   */
+  public OrdinalBitmap range(K from, K to) {
+    NavigableMap<K, OrdinalBitmap> range = bitmaps;
+    if (from != null) {
+      range = range.tailMap(from, true);
+    }
+    if (to != null) {
+      range = range.headMap(to, true);
+    }
+    return anyOf(range.keySet());
+  }
+}
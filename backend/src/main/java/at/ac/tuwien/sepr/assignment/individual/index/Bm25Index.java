@@ -0,0 +1,227 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from the terms of texts to the IDs of the texts, ranking texts by their relevance for a query with Okapi BM25.
+ *
+ * <p>
+ * Texts are case-folded and split into terms at every character, that is neither a letter nor a digit.
+ * The score of a text sums up, for every term of the query it contains,
+ * the inverse document frequency of the term weighted by its saturated frequency in the text, normalized by the length of the text.
+ * Only the posting lists of the terms of the query are visited, and the best texts are selected with a heap bounded to the requested number,
+ * so ranking never sorts all matching texts.
+ * </p>
+ */
+public class Bm25Index {
+  // Saturation of the term frequency
+  private static final double K1 = 1.2;
+  // Strength of the normalization by the length of the text
+  private static final double B = 0.75;
+  private static final String[] NO_TERMS = new String[0];
+
+  // Posting lists by term, every posting list is sorted ascending by ID
+  private final Map<String, Postings> postings = new HashMap<>();
+  // Distinct terms of every indexed text by its ID, for removing it again
+  private final Map<Long, String[]> termsById = new HashMap<>();
+  // Number of terms of every indexed text by its ID
+  private final Map<Long, Integer> lengths = new HashMap<>();
+  private long totalLength;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * A text matching a query, with its relevance.
+   *
+   * @param id the ID of the text
+   * @param score the BM25 score of the text, higher is more relevant
+   */
+  public record Hit(long id, double score) {
+  }
+
+  // Orders hits from the most to the least relevant, ties are broken by ascending ID to keep the ranking stable
+  private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score).reversed().thenComparingLong(Hit::id);
+
+  /**
+   * Splits a text into its case-folded terms.
+   *
+   * @param text the text to split
+   * @return the terms of the text in order, including duplicates
+   */
+  public static String[] termsOf(String text) {
+    if (text == null) {
+      return NO_TERMS;
+    }
+    return Arrays.stream(TrigramIndex.fold(text).split("[^\\p{L}\\p{N}]+"))
+        .filter(term -> !term.isEmpty())
+        .toArray(String[]::new);
+  }
+
+  /**
+   * Add a text to the index, replacing the text previously indexed with the same ID.
+   *
+   * @param id the ID of the text
+   * @param text the text, null to only remove the previous text
+   */
+  public void put(long id, String text) {
+    String[] terms = termsOf(text);
+    Map<String, Integer> frequencies = new HashMap<>();
+    for (var term : terms) {
+      frequencies.merge(term, 1, Integer::sum);
+    }
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+      if (terms.length > 0) {
+        termsById.put(id, frequencies.keySet().toArray(NO_TERMS));
+        lengths.put(id, terms.length);
+        totalLength += terms.length;
+        frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, key -> new Postings()).add(id, frequency));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove a text from the index.
+   *
+   * @param id the ID of the text
+   */
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Get the most relevant texts for a query.
+   * Every text containing at least one term of the query is relevant, terms repeated in the query count once.
+   *
+   * @param query the query
+   * @param limit the maximum number of texts to return
+   * @return the hits for up to {@code limit} texts, from the most to the least relevant
+   */
+  public List<Hit> top(String query, int limit) {
+    Set<String> queryTerms = new LinkedHashSet<>(Arrays.asList(termsOf(query)));
+    lock.readLock().lock();
+    try {
+      if (limit <= 0 || termsById.isEmpty()) {
+        return List.of();
+      }
+      int count = termsById.size();
+      double averageLength = (double) totalLength / count;
+      Map<Long, Double> scores = new HashMap<>();
+      for (var term : queryTerms) {
+        Postings list = postings.get(term);
+        if (list == null) {
+          continue;
+        }
+        double idf = Math.log(1 + (count - list.size + 0.5) / (list.size + 0.5));
+        for (int i = 0; i < list.size; i++) {
+          long id = list.ids[i];
+          int frequency = list.frequencies[i];
+          double norm = K1 * (1 - B + B * lengths.get(id) / averageLength);
+          scores.merge(id, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+        }
+      }
+
+      // The head of the heap is the least relevant of the best hits so far, and is replaced by any better hit
+      PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, scores.size()) + 1, RANKING.reversed());
+      for (var entry : scores.entrySet()) {
+        Hit hit = new Hit(entry.getKey(), entry.getValue());
+        if (best.size() < limit) {
+          best.add(hit);
+        } else if (RANKING.compare(hit, best.peek()) < 0) {
+          best.poll();
+          best.add(hit);
+        }
+      }
+      List<Hit> hits = new ArrayList<>(best);
+      hits.sort(RANKING);
+      return hits;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Get the number of indexed texts.
+   *
+   * @return the number of texts with at least one term
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return termsById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void removeLocked(long id) {
+    String[] terms = termsById.remove(id);
+    if (terms == null) {
+      return;
+    }
+    totalLength -= lengths.remove(id);
+    for (var term : terms) {
+      Postings list = postings.get(term);
+      list.remove(id);
+      if (list.size == 0) {
+        postings.remove(term);
+      }
+    }
+  }
+
+  /**
+   * List of IDs sorted ascending, with the frequency of the term in each text, that grows as needed.
+   */
+  private static class Postings {
+    private long[] ids = new long[4];
+    private int[] frequencies = new int[4];
+    private int size;
+
+    void add(long id, int frequency) {
+      // IDs are mostly added in ascending order, e.g. when loading all texts
+      int position = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+      if (position >= 0 && position < size) {
+        frequencies[position] = frequency;
+        return;
+      }
+      if (position < 0) {
+        position = -position - 1;
+      }
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        frequencies = Arrays.copyOf(frequencies, size * 2);
+      }
+      System.arraycopy(ids, position, ids, position + 1, size - position);
+      System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+      ids[position] = id;
+      frequencies[position] = frequency;
+      size++;
+    }
+
+    void remove(long id) {
+      int position = Arrays.binarySearch(ids, 0, size, id);
+      if (position >= 0) {
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        System.arraycopy(frequencies, position + 1, frequencies, position, size - position - 1);
+        size--;
+      }
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counters of the number of items having each value of an attribute, kept up to date as items are added and removed.
+ * Values whose count drops to zero are forgotten.
+ *
+ * <p>
+ * The counters are not thread-safe, concurrent access has to be synchronized externally.
+ * </p>
+ *
+ * @param <K> the type of the values of the attribute
+ */
+public class FacetCounts<K extends Comparable<K>> {
+  private final Map<K, Long> counts = new HashMap<>();
+
+  /**
+   * Change the count of a value.
+   *
+   * @param value the value, null values are not counted
+   * @param delta the number of items added with the value, negative for removed items
+   */
+  public void add(K value, long delta) {
+    if (value != null) {
+      counts.merge(value, delta, (count, change) -> count + change == 0 ? null : count + change);
+    }
+  }
+
+  /**
+   * Get the counts of all values.
+   *
+   * @return a new unmodifiable map of the non-zero counts, ordered by value
+   */
+  public Map<K, Long> toMap() {
+    return Collections.unmodifiableMap(new TreeMap<>(counts));
+  }
+}
@@ -0,0 +1,274 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index finding the case-folded texts within a bounded edit distance of a query,
+ * where the distance is the optimal string alignment variant of the Damerau-Levenshtein distance
+ * (insertions, deletions, substitutions and transpositions of adjacent characters).
+ *
+ * <p>
+ * Texts are indexed by their trigrams, padded at both ends so the first and last characters are covered by three trigrams as well.
+ * A single edit operation destroys at most four trigrams of the query, so a text within distance {@code k} shares
+ * at least {@code t = |trigrams| - 4k} of the distinct trigrams of the query.
+ * Such a text must occur in at least one of the {@code |trigrams| - t + 1} shortest posting lists,
+ * so only those are scanned for candidates, whose other trigrams are then looked up in the remaining posting lists.
+ * A text within distance {@code k} also differs in length by at most {@code k},
+ * so there are separate posting lists for every length of the texts, and only those of the {@code 2k + 1} lengths in question are read.
+ * Candidates that share enough trigrams are verified by computing the distance.
+ * </p>
+ */
+public class FuzzyIndex {
+  // Maximum distance supported, beyond it the trigrams no longer narrow down the texts
+  public static final int MAX_DISTANCE = 2;
+  private static final char PADDING = '\u0002';
+  private static final long[] NO_TRIGRAMS = new long[0];
+  private static final Postings EMPTY = new Postings();
+
+  // Posting lists by padded trigram and length of the texts
+  private final Map<Long, Postings> postings = new HashMap<>();
+  // Folded texts by ID, for verifying candidates and removing texts again
+  private final Map<Long, String> textsById = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * A text within the maximum distance of a query.
+   *
+   * @param id the ID of the text
+   * @param distance the edit distance between the folded text and the folded query
+   */
+  public record Match(long id, int distance) {
+  }
+
+  /**
+   * Get the default maximum distance for a query, growing with its length, so short queries do not match almost anything.
+   *
+   * @param query the query
+   * @return 0 for up to three characters, 1 for up to seven characters, and 2 for longer queries
+   */
+  public static int defaultMaxDistance(String query) {
+    int length = query.strip().length();
+    return length <= 3 ? 0 : length <= 7 ? 1 : MAX_DISTANCE;
+  }
+
+  /**
+   * Add a text to the index, replacing the text previously indexed with the same ID.
+   *
+   * @param id the ID of the text
+   * @param text the text, null to only remove the previous text
+   */
+  public void put(long id, String text) {
+    String folded = text == null ? null : TrigramIndex.fold(text.strip());
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+      if (folded != null && !folded.isEmpty()) {
+        textsById.put(id, folded);
+        for (long trigram : trigramsOf(folded)) {
+          postings.computeIfAbsent(key(trigram, folded.length()), key -> new Postings()).add(id);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove a text from the index.
+   *
+   * @param id the ID of the text
+   */
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Get the texts within a maximum distance of the case-folded query.
+   *
+   * @param query the query
+   * @param maxDistance the maximum distance, between 0 and {@link #MAX_DISTANCE}
+   * @return the matching texts, ordered by ascending distance and then by ascending ID
+   */
+  public List<Match> search(String query, int maxDistance) {
+    if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+      throw new IllegalArgumentException("Maximum distance must be between 0 and " + MAX_DISTANCE);
+    }
+    String folded = TrigramIndex.fold(query.strip());
+    if (folded.isEmpty()) {
+      return List.of();
+    }
+    long[] trigrams = trigramsOf(folded);
+    int threshold = trigrams.length - 4 * maxDistance;
+    List<Match> matches = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      if (threshold <= 0) {
+        // The trigrams cannot narrow down the texts, so every text is a candidate
+        textsById.forEach((id, text) -> verify(id, text, folded, maxDistance, matches));
+      } else {
+        for (int length = Math.max(1, folded.length() - maxDistance); length <= folded.length() + maxDistance; length++) {
+          for (long id : candidates(trigrams, length, threshold)) {
+            verify(id, textsById.get(id), folded, maxDistance, matches);
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    matches.sort(Comparator.comparingInt(Match::distance).thenComparingLong(Match::id));
+    return matches;
+  }
+
+  /**
+   * Get the IDs of the texts of the given length, that share at least {@code threshold} of the given trigrams.
+   */
+  private long[] candidates(long[] trigrams, int length, int threshold) {
+    Postings[] lists = new Postings[trigrams.length];
+    for (int i = 0; i < trigrams.length; i++) {
+      lists[i] = postings.getOrDefault(key(trigrams[i], length), EMPTY);
+    }
+    Arrays.sort(lists, Comparator.comparingInt(Postings::size));
+    // Every candidate is in one of the shortest lists, the longest lists are only probed for the candidates
+    int scanned = lists.length - threshold + 1;
+    int total = 0;
+    for (int i = 0; i < scanned; i++) {
+      total += lists[i].size();
+    }
+    long[] ids = new long[total];
+    int count = 0;
+    for (int i = 0; i < scanned; i++) {
+      for (int j = 0; j < lists[i].size(); j++) {
+        ids[count++] = lists[i].get(j);
+      }
+    }
+    Arrays.sort(ids);
+    int kept = 0;
+    for (int start = 0, end; start < ids.length; start = end) {
+      end = start + 1;
+      while (end < ids.length && ids[end] == ids[start]) {
+        end++;
+      }
+      int shared = end - start;
+      for (int i = scanned; i < lists.length && shared < threshold; i++) {
+        if (lists[i].contains(ids[start])) {
+          shared++;
+        }
+      }
+      if (shared >= threshold) {
+        ids[kept++] = ids[start];
+      }
+    }
+    return Arrays.copyOf(ids, kept);
+  }
+
+  private static void verify(long id, String text, String query, int maxDistance, List<Match> matches) {
+    if (Math.abs(text.length() - query.length()) <= maxDistance) {
+      int distance = distance(query, text, maxDistance);
+      if (distance <= maxDistance) {
+        matches.add(new Match(id, distance));
+      }
+    }
+  }
+
+  /**
+   * Get the number of indexed texts.
+   *
+   * @return the number of non-empty texts
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return textsById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Computes the optimal string alignment distance between two strings,
+   * stopping early once every alignment exceeds the maximum distance.
+   *
+   * @param first the first string
+   * @param second the second string
+   * @param maxDistance the maximum distance of interest
+   * @return the distance, or any value greater than {@code maxDistance} if the distance exceeds it
+   */
+  static int distance(String first, String second, int maxDistance) {
+    int[] beforePrevious = new int[second.length() + 1];
+    int[] previous = new int[second.length() + 1];
+    int[] current = new int[second.length() + 1];
+    for (int j = 0; j <= second.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= first.length(); i++) {
+      current[0] = i;
+      int rowMinimum = i;
+      for (int j = 1; j <= second.length(); j++) {
+        int cost = first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1;
+        current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+        if (i > 1 && j > 1 && first.charAt(i - 1) == second.charAt(j - 2) && first.charAt(i - 2) == second.charAt(j - 1)) {
+          current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+        }
+        rowMinimum = Math.min(rowMinimum, current[j]);
+      }
+      if (rowMinimum > maxDistance) {
+        return maxDistance + 1;
+      }
+      int[] recycled = beforePrevious;
+      beforePrevious = previous;
+      previous = current;
+      current = recycled;
+    }
+    return previous[second.length()];
+  }
+
+  private void removeLocked(long id) {
+    String folded = textsById.remove(id);
+    if (folded == null) {
+      return;
+    }
+    for (long trigram : trigramsOf(folded)) {
+      long key = key(trigram, folded.length());
+      Postings list = postings.get(key);
+      list.remove(id);
+      if (list.size() == 0) {
+        postings.remove(key);
+      }
+    }
+  }
+
+  /**
+   * Combines a trigram with the length of a text into the key of a posting list.
+   * Lengths beyond 255 characters share their posting lists, which only adds candidates.
+   */
+  private static long key(long trigram, int length) {
+    return trigram << 8 | Math.min(length, 255);
+  }
+
+  /**
+   * Get the distinct trigrams of a text padded with two characters at both ends, each packed into a long of three 16 bit characters.
+   */
+  private static long[] trigramsOf(String text) {
+    if (text.isEmpty()) {
+      return NO_TRIGRAMS;
+    }
+    String padded = "" + PADDING + PADDING + text + PADDING + PADDING;
+    long[] trigrams = new long[padded.length() - 2];
+    for (int i = 0; i < trigrams.length; i++) {
+      trigrams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+    }
+    return Arrays.stream(trigrams).distinct().toArray();
+  }
+}
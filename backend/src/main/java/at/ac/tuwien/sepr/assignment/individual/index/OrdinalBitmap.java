@@ -0,0 +1,345 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative int ordinals, organized like a Roaring bitmap.
+ *
+ * <p>
+ * The ordinals are partitioned by their upper 16 bits into chunks of 65536 ordinals each.
+ * A chunk holding at most 4096 ordinals stores their lower 16 bits as a sorted array,
+ * a denser chunk stores them as a bitmap of 8 KiB, so no chunk ever takes more than 8 KiB
+ * and sparse sets take only 2 bytes per ordinal.
+ * Intersections and unions work chunk by chunk, skipping chunks present in only one of the operands, resp. copying them.
+ * </p>
+ *
+ * <p>
+ * Bitmaps are not thread-safe, concurrent access has to be synchronized externally.
+ * </p>
+ */
+public class OrdinalBitmap {
+  // Maximum number of ordinals in a chunk stored as an array, at which arrays and bitmaps take the same space
+  private static final int MAX_ARRAY_SIZE = 4096;
+
+  // Upper 16 bits of the ordinals of every chunk, sorted ascending
+  private char[] keys = new char[0];
+  private Chunk[] chunks = new Chunk[0];
+  private int size;
+
+  /**
+   * Add an ordinal to the set.
+   *
+   * @param ordinal the non-negative ordinal
+   */
+  public void add(int ordinal) {
+    int index = Arrays.binarySearch(keys, 0, size, high(ordinal));
+    if (index < 0) {
+      index = -index - 1;
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, Math.max(4, size * 2));
+        chunks = Arrays.copyOf(chunks, keys.length);
+      }
+      System.arraycopy(keys, index, keys, index + 1, size - index);
+      System.arraycopy(chunks, index, chunks, index + 1, size - index);
+      keys[index] = high(ordinal);
+      chunks[index] = new Chunk();
+      size++;
+    }
+    chunks[index].add(low(ordinal));
+  }
+
+  /**
+   * Remove an ordinal from the set.
+   *
+   * @param ordinal the non-negative ordinal
+   */
+  public void remove(int ordinal) {
+    int index = Arrays.binarySearch(keys, 0, size, high(ordinal));
+    if (index >= 0) {
+      chunks[index].remove(low(ordinal));
+      if (chunks[index].cardinality == 0) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(chunks, index + 1, chunks, index, size - index - 1);
+        size--;
+        chunks[size] = null;
+      }
+    }
+  }
+
+  /**
+   * Check whether an ordinal is in the set.
+   *
+   * @param ordinal the non-negative ordinal
+   * @return true, if the ordinal is in the set
+   */
+  public boolean contains(int ordinal) {
+    int index = Arrays.binarySearch(keys, 0, size, high(ordinal));
+    return index >= 0 && chunks[index].contains(low(ordinal));
+  }
+
+  /**
+   * Get the number of ordinals in the set.
+   *
+   * @return the cardinality of the set
+   */
+  public int cardinality() {
+    int cardinality = 0;
+    for (int i = 0; i < size; i++) {
+      cardinality += chunks[i].cardinality;
+    }
+    return cardinality;
+  }
+
+  /**
+   * Compute the intersection of this set and another set.
+   *
+   * @param other the other set
+   * @return a new set of the ordinals in both sets
+   */
+  public OrdinalBitmap and(OrdinalBitmap other) {
+    OrdinalBitmap result = new OrdinalBitmap();
+    result.keys = new char[Math.min(size, other.size)];
+    result.chunks = new Chunk[result.keys.length];
+    for (int i = 0, j = 0; i < size && j < other.size; ) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        Chunk chunk = chunks[i].and(other.chunks[j]);
+        if (chunk.cardinality > 0) {
+          result.keys[result.size] = keys[i];
+          result.chunks[result.size++] = chunk;
+        }
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Compute the union of this set and another set.
+   *
+   * @param other the other set
+   * @return a new set of the ordinals in either set
+   */
+  public OrdinalBitmap or(OrdinalBitmap other) {
+    OrdinalBitmap result = new OrdinalBitmap();
+    result.keys = new char[size + other.size];
+    result.chunks = new Chunk[result.keys.length];
+    int i = 0;
+    int j = 0;
+    while (i < size || j < other.size) {
+      if (j == other.size || i < size && keys[i] < other.keys[j]) {
+        result.keys[result.size] = keys[i];
+        result.chunks[result.size++] = chunks[i++].copy();
+      } else if (i == size || keys[i] > other.keys[j]) {
+        result.keys[result.size] = other.keys[j];
+        result.chunks[result.size++] = other.chunks[j++].copy();
+      } else {
+        result.keys[result.size] = keys[i];
+        result.chunks[result.size++] = chunks[i++].or(other.chunks[j++]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Get all ordinals in the set.
+   *
+   * @return the ordinals in ascending order
+   */
+  public int[] toArray() {
+    int[] ordinals = new int[cardinality()];
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      count = chunks[i].copyTo(keys[i] << 16, ordinals, count);
+    }
+    return ordinals;
+  }
+
+  private static char high(int ordinal) {
+    if (ordinal < 0) {
+      throw new IllegalArgumentException("Ordinal must not be negative: " + ordinal);
+    }
+    return (char) (ordinal >>> 16);
+  }
+
+  private static char low(int ordinal) {
+    return (char) ordinal;
+  }
+
+  /**
+   * Set of the lower 16 bits of the ordinals of a chunk, stored either as sorted array or as bitmap.
+   */
+  private static class Chunk {
+    private char[] array = new char[4];
+    private long[] bitmap;
+    private int cardinality;
+
+    void add(char value) {
+      if (bitmap != null) {
+        if ((bitmap[value >>> 6] & 1L << value) == 0) {
+          bitmap[value >>> 6] |= 1L << value;
+          cardinality++;
+        }
+        return;
+      }
+      int position = Arrays.binarySearch(array, 0, cardinality, value);
+      if (position >= 0) {
+        return;
+      }
+      if (cardinality == MAX_ARRAY_SIZE) {
+        toBitmap();
+        add(value);
+        return;
+      }
+      position = -position - 1;
+      if (cardinality == array.length) {
+        array = Arrays.copyOf(array, Math.min(cardinality * 2, MAX_ARRAY_SIZE));
+      }
+      System.arraycopy(array, position, array, position + 1, cardinality - position);
+      array[position] = value;
+      cardinality++;
+    }
+
+    void remove(char value) {
+      if (bitmap != null) {
+        if ((bitmap[value >>> 6] & 1L << value) != 0) {
+          bitmap[value >>> 6] &= ~(1L << value);
+          cardinality--;
+          if (cardinality <= MAX_ARRAY_SIZE) {
+            toArray();
+          }
+        }
+        return;
+      }
+      int position = Arrays.binarySearch(array, 0, cardinality, value);
+      if (position >= 0) {
+        System.arraycopy(array, position + 1, array, position, cardinality - position - 1);
+        cardinality--;
+      }
+    }
+
+    boolean contains(char value) {
+      return bitmap != null
+          ? (bitmap[value >>> 6] & 1L << value) != 0
+          : Arrays.binarySearch(array, 0, cardinality, value) >= 0;
+    }
+
+    Chunk and(Chunk other) {
+      Chunk result = new Chunk();
+      if (bitmap != null && other.bitmap != null) {
+        result.array = null;
+        result.bitmap = new long[1024];
+        for (int i = 0; i < 1024; i++) {
+          result.bitmap[i] = bitmap[i] & other.bitmap[i];
+          result.cardinality += Long.bitCount(result.bitmap[i]);
+        }
+        if (result.cardinality <= MAX_ARRAY_SIZE) {
+          result.toArray();
+        }
+        return result;
+      }
+      // At least one side is an array, so the result is small enough for an array
+      Chunk sparse = bitmap == null ? this : other;
+      Chunk dense = sparse == this ? other : this;
+      result.array = new char[Math.max(4, sparse.cardinality)];
+      for (int i = 0; i < sparse.cardinality; i++) {
+        if (dense.contains(sparse.array[i])) {
+          result.array[result.cardinality++] = sparse.array[i];
+        }
+      }
+      return result;
+    }
+
+    Chunk or(Chunk other) {
+      Chunk result = new Chunk();
+      if (bitmap == null && other.bitmap == null && cardinality + other.cardinality <= MAX_ARRAY_SIZE) {
+        result.array = new char[Math.max(4, cardinality + other.cardinality)];
+        int i = 0;
+        int j = 0;
+        while (i < cardinality || j < other.cardinality) {
+          char value;
+          if (j == other.cardinality || i < cardinality && array[i] < other.array[j]) {
+            value = array[i++];
+          } else if (i == cardinality || array[i] > other.array[j]) {
+            value = other.array[j++];
+          } else {
+            value = array[i++];
+            j++;
+          }
+          result.array[result.cardinality++] = value;
+        }
+        return result;
+      }
+      result.bitmap = words();
+      long[] otherWords = other.bitmap != null ? other.bitmap : other.words();
+      result.cardinality = 0;
+      for (int i = 0; i < 1024; i++) {
+        result.bitmap[i] |= otherWords[i];
+        result.cardinality += Long.bitCount(result.bitmap[i]);
+      }
+      result.array = null;
+      if (result.cardinality <= MAX_ARRAY_SIZE) {
+        result.toArray();
+      }
+      return result;
+    }
+
+    Chunk copy() {
+      Chunk result = new Chunk();
+      result.array = array == null ? null : Arrays.copyOf(array, Math.max(4, cardinality));
+      result.bitmap = bitmap == null ? null : bitmap.clone();
+      result.cardinality = cardinality;
+      return result;
+    }
+
+    int copyTo(int base, int[] ordinals, int offset) {
+      if (bitmap == null) {
+        for (int i = 0; i < cardinality; i++) {
+          ordinals[offset++] = base | array[i];
+        }
+        return offset;
+      }
+      for (int i = 0; i < 1024; i++) {
+        for (long word = bitmap[i]; word != 0; word &= word - 1) {
+          ordinals[offset++] = base | i << 6 | Long.numberOfTrailingZeros(word);
+        }
+      }
+      return offset;
+    }
+
+    /**
+     * Get the values as bitmap, a new one if the values are stored as array.
+     */
+    private long[] words() {
+      if (bitmap != null) {
+        return bitmap.clone();
+      }
+      long[] words = new long[1024];
+      for (int i = 0; i < cardinality; i++) {
+        words[array[i] >>> 6] |= 1L << array[i];
+      }
+      return words;
+    }
+
+    private void toBitmap() {
+      bitmap = words();
+      array = null;
+    }
+
+    private void toArray() {
+      char[] values = new char[Math.max(4, cardinality)];
+      int count = 0;
+      for (int i = 0; i < 1024; i++) {
+        for (long word = bitmap[i]; word != 0; word &= word - 1) {
+          values[count++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+        }
+      }
+      array = values;
+      bitmap = null;
+    }
+  }
+}
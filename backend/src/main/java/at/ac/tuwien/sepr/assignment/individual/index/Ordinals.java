@@ -0,0 +1,89 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns dense int ordinals to sparse long IDs, so sets of IDs can be stored as {@link OrdinalBitmap}s.
+ * Ordinals are handed out in the order the IDs are added, and the ordinals of removed IDs are not reused.
+ *
+ * <p>
+ * Ordinals are not thread-safe, concurrent access has to be synchronized externally.
+ * </p>
+ */
+public class Ordinals {
+  private final Map<Long, Integer> ordinalsById = new HashMap<>();
+  // IDs by their ordinal, 0 for ordinals of removed IDs
+  private long[] ids = new long[16];
+  private int next;
+
+  /**
+   * Get the ordinal of an ID, assigning the next free ordinal to it if it has none yet.
+   *
+   * @param id the ID
+   * @return the ordinal of the ID
+   */
+  public int add(long id) {
+    Integer ordinal = ordinalsById.get(id);
+    if (ordinal != null) {
+      return ordinal;
+    }
+    if (next == ids.length) {
+      ids = Arrays.copyOf(ids, next * 2);
+    }
+    ids[next] = id;
+    ordinalsById.put(id, next);
+    return next++;
+  }
+
+  /**
+   * Get the ordinal of an ID.
+   *
+   * @param id the ID
+   * @return the ordinal of the ID, or -1 if it has none
+   */
+  public int get(long id) {
+    Integer ordinal = ordinalsById.get(id);
+    return ordinal == null ? -1 : ordinal;
+  }
+
+  /**
+   * Remove an ID.
+   *
+   * @param id the ID
+   * @return the ordinal the ID had, or -1 if it had none
+   */
+  public int remove(long id) {
+    Integer ordinal = ordinalsById.remove(id);
+    if (ordinal == null) {
+      return -1;
+    }
+    ids[ordinal] = 0;
+    return ordinal;
+  }
+
+  /**
+   * Get the IDs of the given ordinals.
+   *
+   * @param ordinals the ordinals of IDs, that have not been removed
+   * @return the IDs in ascending order
+   */
+  public long[] ids(int[] ordinals) {
+    long[] result = new long[ordinals.length];
+    for (int i = 0; i < ordinals.length; i++) {
+      result[i] = ids[ordinals[i]];
+    }
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * Get the number of IDs with an ordinal.
+   *
+   * @return the number of IDs added and not removed again
+   */
+  public int size() {
+    return ordinalsById.size();
+  }
+}
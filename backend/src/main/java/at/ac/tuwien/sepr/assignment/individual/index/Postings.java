@@ -0,0 +1,51 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import java.util.Arrays;
+
+/**
+ * Posting list of an inverted index: a sorted list of IDs, that grows as needed.
+ */
+class Postings {
+  private long[] ids = new long[4];
+  private int size;
+
+  void add(long id) {
+    // IDs are mostly added in ascending order, e.g. when loading all texts
+    int position = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+    if (position < 0) {
+      position = -position - 1;
+    } else if (position < size) {
+      return;
+    }
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size * 2);
+    }
+    System.arraycopy(ids, position, ids, position + 1, size - position);
+    ids[position] = id;
+    size++;
+  }
+
+  void remove(long id) {
+    int position = Arrays.binarySearch(ids, 0, size, id);
+    if (position >= 0) {
+      System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+      size--;
+    }
+  }
+
+  boolean contains(long id) {
+    return Arrays.binarySearch(ids, 0, size, id) >= 0;
+  }
+
+  long get(int index) {
+    return ids[index];
+  }
+
+  int size() {
+    return size;
+  }
+
+  long[] toArray() {
+    return Arrays.copyOf(ids, size);
+  }
+}
@@ -0,0 +1,283 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index completing a prefix to the IDs of the case-folded texts starting with it, or having a word starting with it.
+ *
+ * <p>
+ * The index is a flattened trie: every text is stored once as a key from its start, and once from the start of each further word,
+ * in two lists sorted by key, so all keys below a trie node form a contiguous range, found by binary search.
+ * Completions are ranked by the order of the keys: character by character in the folded text, a key before the keys it is a prefix of,
+ * and equal keys by ID. A word match is ranked by the rest of the text from that word on, not by the whole text.
+ * The best completions are therefore the first entries of the range, and a lookup never looks at more entries than it returns.
+ * The sorted lists are split into blocks of bounded size, so adding or removing a text only moves entries within a single block.
+ * Entries refer to the folded text and an offset into it, so a text is held only once, no matter how many words it has.
+ * </p>
+ */
+public class PrefixIndex {
+  // Keys starting at the start of a text
+  private final Entries starts = new Entries();
+  // Keys starting at the start of any further word of a text
+  private final Entries words = new Entries();
+  // Folded texts by ID, for removing their keys again
+  private final Map<Long, String> textsById = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Add a text to the index, replacing the text previously indexed with the same ID.
+   *
+   * @param id the ID of the text
+   * @param text the text, null to only remove the previous text
+   */
+  public void put(long id, String text) {
+    String folded = text == null ? null : TrigramIndex.fold(text);
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+      if (folded != null && !folded.isEmpty()) {
+        textsById.put(id, folded);
+        starts.add(folded, 0, id);
+        for (int offset = 1; offset < folded.length(); offset++) {
+          if (isWordStart(folded, offset)) {
+            words.add(folded, offset, id);
+          }
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove a text from the index.
+   *
+   * @param id the ID of the text
+   */
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Get the IDs of the texts completing a case-folded prefix.
+   * Texts starting with the prefix rank before texts with a further word starting with it,
+   * within each group the keys are ordered character by character, a key ranking before the keys it is a prefix of.
+   * A text matching more than once is returned at its best rank.
+   *
+   * @param prefix the prefix to complete
+   * @param limit the maximum number of IDs to return
+   * @return up to {@code limit} distinct IDs, from the best to the worst completion
+   */
+  public List<Long> complete(String prefix, int limit) {
+    String folded = TrigramIndex.fold(prefix);
+    Set<Long> ids = new LinkedHashSet<>();
+    lock.readLock().lock();
+    try {
+      starts.collect(folded, limit, ids);
+      words.collect(folded, limit, ids);
+    } finally {
+      lock.readLock().unlock();
+    }
+    return List.copyOf(ids);
+  }
+
+  /**
+   * Get the number of indexed texts.
+   *
+   * @return the number of non-empty texts
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return textsById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void removeLocked(long id) {
+    String folded = textsById.remove(id);
+    if (folded == null) {
+      return;
+    }
+    starts.remove(folded, 0, id);
+    for (int offset = 1; offset < folded.length(); offset++) {
+      if (isWordStart(folded, offset)) {
+        words.remove(folded, offset, id);
+      }
+    }
+  }
+
+  private static boolean isWordStart(String text, int offset) {
+    return Character.isLetterOrDigit(text.charAt(offset)) && !Character.isLetterOrDigit(text.charAt(offset - 1));
+  }
+
+  /**
+   * Compares the key starting at {@code offset} in {@code text} with {@code other} starting at {@code otherOffset}.
+   */
+  private static int compareKeys(String text, int offset, String other, int otherOffset) {
+    int length = text.length() - offset;
+    int otherLength = other.length() - otherOffset;
+    for (int i = 0; i < Math.min(length, otherLength); i++) {
+      int difference = text.charAt(offset + i) - other.charAt(otherOffset + i);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return length - otherLength;
+  }
+
+  /**
+   * Entries of a key and an ID, sorted by key and then by ID, split into blocks of bounded size.
+   */
+  private static class Entries {
+    private static final int MAX_BLOCK_SIZE = 512;
+    private final List<Block> blocks = new ArrayList<>();
+
+    void add(String text, int offset, long id) {
+      if (blocks.isEmpty()) {
+        blocks.add(new Block());
+      }
+      int index = blockFor(text, offset, id);
+      Block block = blocks.get(index);
+      block.insert(block.position(text, offset, id), text, offset, id);
+      if (block.size > MAX_BLOCK_SIZE) {
+        blocks.add(index + 1, block.split());
+      }
+    }
+
+    void remove(String text, int offset, long id) {
+      if (blocks.isEmpty()) {
+        return;
+      }
+      int index = blockFor(text, offset, id);
+      Block block = blocks.get(index);
+      int position = block.position(text, offset, id);
+      if (position < block.size && block.ids[position] == id && block.offsets[position] == offset && block.texts[position].equals(text)) {
+        block.delete(position);
+        if (block.size == 0 && blocks.size() > 1) {
+          blocks.remove(index);
+        }
+      }
+    }
+
+    /**
+     * Adds the IDs of the entries whose key starts with the prefix to {@code ids} in order, until it holds {@code limit} IDs.
+     */
+    void collect(String prefix, int limit, Set<Long> ids) {
+      if (blocks.isEmpty()) {
+        return;
+      }
+      // The first entry with a key not smaller than the prefix
+      for (int index = blockFor(prefix, 0, Long.MIN_VALUE); index < blocks.size(); index++) {
+        Block block = blocks.get(index);
+        for (int position = block.position(prefix, 0, Long.MIN_VALUE); position < block.size; position++) {
+          if (ids.size() >= limit || !block.texts[position].startsWith(prefix, block.offsets[position])) {
+            return;
+          }
+          ids.add(block.ids[position]);
+        }
+      }
+    }
+
+    /**
+     * Finds the first block whose last entry is not smaller than the given entry, or the last block.
+     */
+    private int blockFor(String text, int offset, long id) {
+      int low = 0;
+      int high = blocks.size() - 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        Block block = blocks.get(middle);
+        if (block.size > 0 && block.compare(block.size - 1, text, offset, id) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
+
+  /**
+   * Sorted run of entries, stored in parallel arrays.
+   */
+  private static class Block {
+    private String[] texts = new String[16];
+    private int[] offsets = new int[16];
+    private long[] ids = new long[16];
+    private int size;
+
+    int compare(int position, String text, int offset, long id) {
+      int difference = compareKeys(texts[position], offsets[position], text, offset);
+      return difference != 0 ? difference : Long.compare(ids[position], id);
+    }
+
+    /**
+     * Finds the position of the first entry not smaller than the given entry.
+     */
+    int position(String text, int offset, long id) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (compare(middle, text, offset, id) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    void insert(int position, String text, int offset, long id) {
+      if (size == ids.length) {
+        texts = Arrays.copyOf(texts, size * 2);
+        offsets = Arrays.copyOf(offsets, size * 2);
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      System.arraycopy(texts, position, texts, position + 1, size - position);
+      System.arraycopy(offsets, position, offsets, position + 1, size - position);
+      System.arraycopy(ids, position, ids, position + 1, size - position);
+      texts[position] = text;
+      offsets[position] = offset;
+      ids[position] = id;
+      size++;
+    }
+
+    void delete(int position) {
+      System.arraycopy(texts, position + 1, texts, position, size - position - 1);
+      System.arraycopy(offsets, position + 1, offsets, position, size - position - 1);
+      System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+      size--;
+      texts[size] = null;
+    }
+
+    /**
+     * Moves the upper half of the entries into a new block, that follows this block.
+     */
+    Block split() {
+      Block upper = new Block();
+      int half = size / 2;
+      for (int position = half; position < size; position++) {
+        upper.insert(upper.size, texts[position], offsets[position], ids[position]);
+        texts[position] = null;
+      }
+      size = half;
+      return upper;
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index from ordinals to long keys, such as the epoch days of dates, that finds the ordinals with a key in a range.
+ *
+ * <p>
+ * The entries are sorted by key and then by ordinal, so the ordinals within a range are a contiguous run found by binary search,
+ * and a range lookup costs {@code O(log n + k)} for {@code k} ordinals in the range, plus sorting them into a bitmap.
+ * The sorted entries are split into blocks of bounded size, so adding or removing an entry only moves entries within a single block.
+ * </p>
+ *
+ * <p>
+ * The index is not thread-safe, concurrent access has to be synchronized externally.
+ * </p>
+ */
+public class RangeIndex {
+  private static final int MAX_BLOCK_SIZE = 1024;
+  // Sorted runs of entries, every block holds greater entries than the blocks before it
+  private final List<Block> blocks = new ArrayList<>(List.of(new Block()));
+  private int size;
+  // Keys by ordinal, for removing the entries again
+  private final Map<Integer, Long> keysByOrdinal = new HashMap<>();
+
+  /**
+   * Set the key of an ordinal, replacing its previous key.
+   *
+   * @param ordinal the ordinal
+   * @param key the key
+   */
+  public void put(int ordinal, long key) {
+    remove(ordinal);
+    int index = blockFor(key, ordinal);
+    Block block = blocks.get(index);
+    block.insert(block.position(key, ordinal), key, ordinal);
+    if (block.size > MAX_BLOCK_SIZE) {
+      blocks.add(index + 1, block.split());
+    }
+    size++;
+    keysByOrdinal.put(ordinal, key);
+  }
+
+  /**
+   * Remove the key of an ordinal.
+   *
+   * @param ordinal the ordinal
+   */
+  public void remove(int ordinal) {
+    Long key = keysByOrdinal.remove(ordinal);
+    if (key != null) {
+      int index = blockFor(key, ordinal);
+      Block block = blocks.get(index);
+      block.delete(block.position(key, ordinal));
+      if (block.size == 0 && blocks.size() > 1) {
+        blocks.remove(index);
+      }
+      size--;
+    }
+  }
+
+  /**
+   * Get the key of an ordinal.
+   *
+   * @param ordinal the ordinal
+   * @return the key of the ordinal, or null if it has none
+   */
+  public Long get(int ordinal) {
+    return keysByOrdinal.get(ordinal);
+  }
+
+  /**
+   * Get the ordinals with a key in a range.
+   *
+   * @param from the lowest key of the range, inclusive
+   * @param until the end of the range, exclusive
+   * @return a new bitmap of the ordinals with a key in the range
+   */
+  public OrdinalBitmap between(long from, long until) {
+    OrdinalBitmap result = new OrdinalBitmap();
+    if (from >= until) {
+      return result;
+    }
+    int[] found = new int[16];
+    int count = 0;
+    for (int index = blockFor(from, Integer.MIN_VALUE); index < blocks.size(); index++) {
+      Block block = blocks.get(index);
+      int start = block.position(from, Integer.MIN_VALUE);
+      int end = block.position(until, Integer.MIN_VALUE);
+      if (count + end - start > found.length) {
+        found = Arrays.copyOf(found, Math.max(found.length * 2, count + end - start));
+      }
+      System.arraycopy(block.ordinals, start, found, count, end - start);
+      count += end - start;
+      if (end < block.size) {
+        break;
+      }
+    }
+    // Ordinals added in ascending order are appended to their chunk
+    Arrays.sort(found, 0, count);
+    for (int i = 0; i < count; i++) {
+      result.add(found[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Get the number of indexed ordinals.
+   *
+   * @return the number of ordinals with a key
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Finds the first block whose last entry is not smaller than the given entry, or the last block.
+   */
+  private int blockFor(long key, int ordinal) {
+    int low = 0;
+    int high = blocks.size() - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      Block block = blocks.get(middle);
+      if (block.size > 0 && block.compare(block.size - 1, key, ordinal) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Sorted run of entries, stored in parallel arrays.
+   */
+  private static class Block {
+    private long[] keys = new long[16];
+    private int[] ordinals = new int[16];
+    private int size;
+
+    int compare(int position, long key, int ordinal) {
+      return keys[position] != key ? Long.compare(keys[position], key) : Integer.compare(ordinals[position], ordinal);
+    }
+
+    /**
+     * Finds the position of the first entry not smaller than the given entry.
+     */
+    int position(long key, int ordinal) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (compare(middle, key, ordinal) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    void insert(int position, long key, int ordinal) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        ordinals = Arrays.copyOf(ordinals, size * 2);
+      }
+      System.arraycopy(keys, position, keys, position + 1, size - position);
+      System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+      keys[position] = key;
+      ordinals[position] = ordinal;
+      size++;
+    }
+
+    void delete(int position) {
+      System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+      System.arraycopy(ordinals, position + 1, ordinals, position, size - position - 1);
+      size--;
+    }
+
+    /**
+     * Moves the upper half of the entries into a new block, that follows this block.
+     */
+    Block split() {
+      Block upper = new Block();
+      int half = size / 2;
+      upper.keys = Arrays.copyOfRange(keys, half, Math.max(size, half + 16));
+      upper.ordinals = Arrays.copyOfRange(ordinals, half, Math.max(size, half + 16));
+      upper.size = size - half;
+      size = half;
+      return upper;
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from the trigrams (substrings of three characters) of case-folded texts to the IDs of the texts.
+ *
+ * <p>
+ * A text contains a query of at least three characters only if it contains every trigram of the query,
+ * so intersecting the posting lists of the trigrams of the query yields a superset of the matching texts,
+ * without looking at any text that lacks one of the trigrams.
+ * The candidates still have to be verified against the texts, e.g. by the database.
+ * </p>
+ */
+public class TrigramIndex {
+  private static final long[] NO_IDS = new long[0];
+
+  // Posting lists by trigram, every posting list is sorted ascending
+  private final Map<Long, Postings> postings = new HashMap<>();
+  // Trigrams of every indexed text by its ID, for removing it again
+  private final Map<Long, long[]> trigramsById = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Case-folds a text the way the index does.
+   *
+   * @param text the text to fold
+   * @return the folded text
+   */
+  public static String fold(String text) {
+    return text.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Add a text to the index, replacing the text previously indexed with the same ID.
+   *
+   * @param id the ID of the text
+   * @param text the text, null to only remove the previous text
+   */
+  public void put(long id, String text) {
+    long[] trigrams = text == null ? NO_IDS : trigramsOf(fold(text));
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+      if (trigrams.length > 0) {
+        trigramsById.put(id, trigrams);
+        for (long trigram : trigrams) {
+          postings.computeIfAbsent(trigram, key -> new Postings()).add(id);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove a text from the index.
+   *
+   * @param id the ID of the text
+   */
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      removeLocked(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Check whether the index can narrow down the texts containing a query.
+   *
+   * @param query the query
+   * @return true, if the query is long enough to consist of at least one trigram
+   */
+  public static boolean canNarrow(String query) {
+    return query != null && query.length() >= 3;
+  }
+
+  /**
+   * Get the IDs of all texts containing every trigram of the case-folded query.
+   * This is a superset of the IDs of the texts containing the query.
+   *
+   * @param query the query, consisting of at least three characters (see {@link #canNarrow(String)})
+   * @return the IDs of the candidate texts in ascending order
+   */
+  public long[] candidates(String query) {
+    if (!canNarrow(query)) {
+      throw new IllegalArgumentException("Query must have at least three characters");
+    }
+    long[] trigrams = trigramsOf(fold(query));
+    lock.readLock().lock();
+    try {
+      Postings[] lists = new Postings[trigrams.length];
+      for (int i = 0; i < trigrams.length; i++) {
+        lists[i] = postings.get(trigrams[i]);
+        if (lists[i] == null) {
+          return NO_IDS;
+        }
+      }
+      // Start with the shortest posting list, so every further step only probes the remaining candidates
+      Arrays.sort(lists, Comparator.comparingInt(Postings::size));
+      long[] result = lists[0].toArray();
+      int count = result.length;
+      for (int i = 1; i < lists.length && count > 0; i++) {
+        int kept = 0;
+        for (int j = 0; j < count; j++) {
+          if (lists[i].contains(result[j])) {
+            result[kept++] = result[j];
+          }
+        }
+        count = kept;
+      }
+      return Arrays.copyOf(result, count);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Get the number of indexed texts.
+   *
+   * @return the number of texts with at least one trigram
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return trigramsById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void removeLocked(long id) {
+    long[] trigrams = trigramsById.remove(id);
+    if (trigrams == null) {
+      return;
+    }
+    for (long trigram : trigrams) {
+      Postings list = postings.get(trigram);
+      list.remove(id);
+      if (list.size() == 0) {
+        postings.remove(trigram);
+      }
+    }
+  }
+
+  /**
+   * Get the distinct trigrams of a text, each packed into a long of three 16 bit characters.
+   */
+  private static long[] trigramsOf(String text) {
+    if (text.length() < 3) {
+      return NO_IDS;
+    }
+    long[] trigrams = new long[text.length() - 2];
+    for (int i = 0; i < trigrams.length; i++) {
+      trigrams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+    return Arrays.stream(trigrams).distinct().toArray();
+  }
+}
@@ -2,13 +2,19 @@ package at.ac.tuwien.sepr.assignment.individual.mapper;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListWithOwnersDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSummaryDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.ParentDto;
 import java.util.List;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
 import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -21,6 +27,25 @@ public class HorseMapper {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
 
+  /**
+   * Converts a {@link Horse} entity into a {@link HorseListDto}, with an owner that has already been looked up.
+   *
+   * @param horse the horse entity to convert
+   * @param owner the owner of the horse, null if it has none
+   * @return the converted {@link HorseListDto}
+   */
+  public HorseListDto entityToListDto(Horse horse, OwnerDto owner) {
+    LOG.trace("entityToListDto({})", horse);
+    return new HorseListDto(
+        horse.id(),
+        horse.name(),
+        horse.description(),
+        horse.dateOfBirth(),
+        horse.sex(),
+        owner
+    );
+  }
+
   /**
    * Converts a {@link Horse} entity into a {@link HorseListDto}.
    * The given map of owners must contain the owner referenced by the horse.
@@ -75,6 +100,76 @@ public class HorseMapper {
     );
   }
 
+  /**
+   * Converts a list of {@link HorseListDto}s into a {@link HorseListWithOwnersDto},
+   * which refers to the owners by ID and contains every owner only once.
+   *
+   * @param horses the horses to convert, in the order of the list
+   * @return the converted {@link HorseListWithOwnersDto}
+   */
+  public HorseListWithOwnersDto listDtosToListWithOwners(List<HorseListDto> horses) {
+    LOG.trace("listDtosToListWithOwners({})", horses.size());
+    Map<Long, OwnerDto> owners = new LinkedHashMap<>();
+    List<HorseSummaryDto> summaries = new ArrayList<>(horses.size());
+    for (var horse : horses) {
+      OwnerDto owner = horse.owner();
+      if (owner != null) {
+        owners.putIfAbsent(owner.id(), owner);
+      }
+      summaries.add(new HorseSummaryDto(
+          horse.id(),
+          horse.name(),
+          horse.description(),
+          horse.dateOfBirth(),
+          horse.sex(),
+          owner != null ? owner.id() : null
+      ));
+    }
+    return new HorseListWithOwnersDto(summaries, owners);
+  }
+
+  /**
+   * Converts a {@link HorseListDto} into the values of the given fields by their name, in the order of the fields.
+   *
+   * @param horse  the horse to convert
+   * @param fields the fields to keep, {@link HorseField#PARENTS} is ignored
+   * @return the values of the fields
+   */
+  public Map<String, Object> listDtoToFields(HorseListDto horse, Set<HorseField> fields) {
+    Map<String, Object> values = new LinkedHashMap<>();
+    for (var field : fields) {
+      switch (field) {
+        case ID -> values.put(field.jsonName(), horse.id());
+        case NAME -> values.put(field.jsonName(), horse.name());
+        case DESCRIPTION -> values.put(field.jsonName(), horse.description());
+        case DATE_OF_BIRTH -> values.put(field.jsonName(), horse.dateOfBirth());
+        case SEX -> values.put(field.jsonName(), horse.sex());
+        case OWNER -> values.put(field.jsonName(), horse.owner());
+        case PARENTS -> {
+          // Horses in lists have no parents
+        }
+        default -> throw new FatalException("Unknown field of horses: " + field);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Converts a {@link HorseDetailDto} into the values of the given fields by their name, in the order of the fields.
+   *
+   * @param horse  the horse to convert
+   * @param fields the fields to keep
+   * @return the values of the fields
+   */
+  public Map<String, Object> detailDtoToFields(HorseDetailDto horse, Set<HorseField> fields) {
+    var values = listDtoToFields(
+        new HorseListDto(horse.id(), horse.name(), horse.description(), horse.dateOfBirth(), horse.sex(), horse.owner()), fields);
+    if (fields.contains(HorseField.PARENTS)) {
+      values.put(HorseField.PARENTS.jsonName(), horse.parents());
+    }
+    return values;
+  }
+
   private OwnerDto getOwner(Horse horse, Map<Long, OwnerDto> owners) {
     OwnerDto owner = null;
     var ownerId = horse.ownerId();
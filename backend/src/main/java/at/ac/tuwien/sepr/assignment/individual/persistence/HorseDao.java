@@ -1,10 +1,16 @@
 package at.ac.tuwien.sepr.assignment.individual.persistence;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * Data Access Object for horses.
@@ -18,6 +24,61 @@ public interface HorseDao {
    */
   List<Horse> getAll();
 
+  /**
+   * Read all horses stored in the persistent data store one by one, ordered by ID, together with their owners.
+   * The horses are fetched from the data store in batches while they are passed on, so they are never all held in memory.
+   * The owners are joined by the same query, so reading all horses takes a single connection to the data store,
+   * which is released when all horses have been read, or as soon as {@code action} throws.
+   *
+   * @param action the action to perform for every horse and its owner, which is null if the horse has none
+   */
+  void forEachWithOwner(BiConsumer<Horse, Owner> action);
+
+  /**
+   * Search for horses matching the criteria in {@code searchParameters}.
+   * The filtering is done by the persistent data store, so only matching horses are loaded.
+   *
+   * <p>
+   * A horse is considered matched, if its name and description contain the given substrings (case-insensitive),
+   * it is born before {@code bornBefore}, has the given sex
+   * and the full name of its owner contains {@code ownerName} (case-insensitive).
+   * Criteria that are {@code null} are not filtered by.
+   * The returned list never contains more than {@code limit} horses, if a positive limit is given.
+   * </p>
+   *
+   * <p>
+   * The horses are ordered by {@code sort}, by ID if none is given, with ties broken by ID.
+   * If a {@code cursor} is given, the horses are ordered as given by the cursor,
+   * and only the horses following the position of the cursor in that order are returned.
+   * </p>
+   *
+   * @param searchParameters object containing the search parameters to match
+   * @return a list of horses matching the criteria, in the requested order
+   */
+  List<Horse> search(HorseSearchDto searchParameters);
+
+  /**
+   * Search for horses matching the criteria in {@code searchParameters}, only among the horses with the given IDs.
+   * Apart from that, this is the same as {@link #search(HorseSearchDto)}.
+   *
+   * @param searchParameters object containing the search parameters to match
+   * @param candidateIds the IDs of the horses to search among, null to search among all horses
+   * @return a list of horses matching the criteria, in the requested order
+   */
+  List<Horse> search(HorseSearchDto searchParameters, Collection<Long> candidateIds);
+
+  /**
+   * Search for horses matching the criteria in {@code searchParameters}, only loading the given fields of them.
+   * Apart from that, this is the same as {@link #search(HorseSearchDto, Collection)}.
+   * The key of the requested order is loaded as well, even if it is not one of the given fields.
+   *
+   * @param searchParameters object containing the search parameters to match
+   * @param candidateIds the IDs of the horses to search among, null to search among all horses
+   * @param fields the fields to load, null for all fields
+   * @return a list of horses matching the criteria, in the requested order, with only the ID, the sort key and the given fields set
+   */
+  List<Horse> search(HorseSearchDto searchParameters, Collection<Long> candidateIds, Set<HorseField> fields);
+
 
   /**
    * Create a horse with the data given in {@code horse}
@@ -28,6 +89,15 @@ public interface HorseDao {
    */
   Horse create(HorseCreateDto horse);
 
+  /**
+   * Create the horses given in {@code horses} in the persistent data store, with a single batch statement.
+   * The parents of the horses are ignored, they have to be added separately.
+   *
+   * @param horses the data to use to create the horses
+   * @return the created horses, in the order of {@code horses}
+   */
+  List<Horse> createAll(List<HorseCreateDto> horses);
+
 
   /**
    * Get a horse by its ID from the persistent data store.
@@ -38,6 +108,25 @@ public interface HorseDao {
    */
   Horse getById(long id) throws NotFoundException;
 
+  /**
+   * Get the given fields of a horse by its ID from the persistent data store, without loading its other columns.
+   *
+   * @param id the ID of the horse to get
+   * @param fields the fields to get, null for all fields
+   * @return the horse, with only the ID and the given fields set
+   * @throws NotFoundException if the Horse with the given ID does not exist in the persistent data store
+   */
+  Horse getById(long id, Set<HorseField> fields) throws NotFoundException;
+
+  /**
+   * Fetch a set of horses by their IDs from the persistent data store.
+   * This is best effort, if some horse can not be found in the data store, it is simply not in the returned list.
+   *
+   * @param ids a collection of ids, to fetch the referenced horses by
+   * @return the list of all found horses ordered by ID, without those, that are not in the persistent data store
+   */
+  List<Horse> getAllById(Collection<Long> ids);
+
   /**
    * Update a horse with the data given in {@code horse}
    * in the persistent data store.
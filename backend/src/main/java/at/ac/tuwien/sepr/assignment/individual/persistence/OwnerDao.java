@@ -35,7 +35,9 @@ public interface OwnerDao {
    * <p>
    * A owner is considered matched, if its name contains {@code searchParameters.name} as a substring.
    * The returned stream of owners never contains more than {@code searchParameters.maxAmount} elements,
-   *  even if there would be more matches in the persistent data store.
+   *  or than a default maximum if it is null, even if there would be more matches in the persistent data store.
+   * Owners whose full name starts with the search term come first, then owners with a further word of the full name starting with it,
+   *  then all other matches ordered by ID.
    * </p>
    *
    * @param searchParameters object containing the search parameters to match
@@ -1,7 +1,9 @@
 package at.ac.tuwien.sepr.assignment.individual.persistence;
 
 import at.ac.tuwien.sepr.assignment.individual.entity.Parent;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for horse parent relationships.
@@ -9,6 +11,13 @@ import java.util.List;
  */
 public interface ParentDao {
 
+  /**
+   * Get all parent relationships stored in the persistent data store.
+   *
+   * @return a list of all parent relationships, ordered by horse ID and parent ID
+   */
+  List<Parent> getAll();
+
   /**
    * Get all parent relationships for a horse.
    *
@@ -17,6 +26,14 @@ public interface ParentDao {
    */
   List<Parent> getParentsByHorseId(long horseId);
 
+  /**
+   * Get all parent relationships for a set of horses with a single lookup.
+   *
+   * @param horseIds the IDs of the horses
+   * @return a list of parent relationships of all the given horses, ordered by horse ID and parent ID
+   */
+  List<Parent> getParentsByHorseIds(Collection<Long> horseIds);
+
   /**
    * Get all children relationships for a horse (horses where this horse is a parent).
    *
@@ -25,6 +42,14 @@ public interface ParentDao {
    */
   List<Parent> getChildrenByParentId(long parentId);
 
+  /**
+   * Get all child relationships for a set of parents with a single lookup.
+   *
+   * @param parentIds the IDs of the parent horses
+   * @return a list of parent relationships where one of the given horses is the parent, ordered by horse ID and parent ID
+   */
+  List<Parent> getChildrenByParentIds(Collection<Long> parentIds);
+
   /**
    * Set the parent relationships for a horse.
    * This replaces all existing parent relationships for the horse.
@@ -34,6 +59,14 @@ public interface ParentDao {
    */
   void setParents(long horseId, List<Long> parentIds);
 
+  /**
+   * Add the parent relationships of newly created horses, with a single batch statement.
+   * The horses must not have any parent relationships yet.
+   *
+   * @param parentIdsByHorseId the list of parent IDs (must contain 0, 1, or 2 IDs) by the ID of the horse
+   */
+  void addParents(Map<Long, List<Long>> parentIdsByHorseId);
+
   /**
    * Delete all parent relationships for a horse.
    *
@@ -0,0 +1,111 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded cache of entities by their ID, evicting the least recently used entity once it is full.
+ * The cached entities must be immutable.
+ *
+ * <p>
+ * DAOs have to invalidate an entity after every write to it.
+ * Every invalidation also increases the version of the cache:
+ * an entity loaded before a write finished is only put into the cache, if the version did not change in the meantime,
+ * so a concurrent read can never put back the state before the write.
+ * </p>
+ *
+ * @param <T> the type of the cached entities
+ */
+public class EntityCache<T> {
+  private final Map<Long, T> entries;
+  private long version;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Statistics of an {@link EntityCache}.
+   *
+   * @param hits the number of lookups answered from the cache
+   * @param misses the number of lookups that had to go to the persistent data store
+   * @param evictions the number of entities removed to keep the cache within its size
+   * @param size the number of entities currently in the cache
+   */
+  public record Stats(long hits, long misses, long evictions, int size) {
+  }
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param maxSize the maximum number of entities in the cache
+   */
+  public EntityCache(int maxSize) {
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, T> eldest) {
+        if (size() > maxSize) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Get a cached entity.
+   *
+   * @param id the ID of the entity
+   * @return the cached entity, or null if it is not cached
+   */
+  public synchronized T get(long id) {
+    T entity = entries.get(id);
+    if (entity == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return entity;
+  }
+
+  /**
+   * Get the current version of the cache, to be passed to {@link #put(long, Object, long)} after loading an entity.
+   *
+   * @return the current version
+   */
+  public synchronized long version() {
+    return version;
+  }
+
+  /**
+   * Put an entity into the cache, unless some entity has been invalidated since it has been loaded.
+   *
+   * @param id the ID of the entity
+   * @param entity the entity
+   * @param loadedAtVersion the version of the cache before loading the entity
+   */
+  public synchronized void put(long id, T entity, long loadedAtVersion) {
+    if (loadedAtVersion == version) {
+      entries.put(id, entity);
+    }
+  }
+
+  /**
+   * Remove an entity from the cache, because it has been changed or deleted.
+   *
+   * @param id the ID of the entity
+   */
+  public synchronized void invalidate(long id) {
+    version++;
+    entries.remove(id);
+  }
+
+  /**
+   * Get the statistics of the cache.
+   *
+   * @return the current statistics
+   */
+  public synchronized Stats stats() {
+    return new Stats(hits, misses, evictions, entries.size());
+  }
+}
@@ -1,25 +1,48 @@
 package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
 import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import java.lang.invoke.MethodHandles;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
 
 /**
  * JDBC implementation of {@link HorseDao} for interacting with the database.
+ * Horses fetched by ID are kept in an {@link EntityCache}, which is invalidated by every write.
  */
 @Repository
 public class HorseJdbcDao implements HorseDao {
@@ -30,10 +53,82 @@ public class HorseJdbcDao implements HorseDao {
   private static final String SQL_SELECT_ALL =
       "SELECT * FROM " + TABLE_NAME;
 
+  private static final String SQL_SELECT_ALL_WITH_OWNERS_ORDERED =
+      "SELECT h.*, o.first_name AS owner_first_name, o.last_name AS owner_last_name, o.email AS owner_email"
+          + " FROM " + TABLE_NAME + " h"
+          + " LEFT JOIN owner o ON o.id = h.owner_id"
+          + " ORDER BY h.id";
+
   private static final String SQL_SELECT_BY_ID =
       "SELECT * FROM " + TABLE_NAME
               + " WHERE ID = :id";
 
+  private static final String SQL_SELECT_ALL_BY_ID =
+      "SELECT * FROM " + TABLE_NAME
+          + " WHERE id IN (:ids) ORDER BY id";
+
+  private static final String SQL_SELECT_SEARCH =
+      "SELECT h.* FROM " + TABLE_NAME + " h";
+
+  private static final String SQL_SELECT_COLUMNS =
+      "SELECT %s FROM " + TABLE_NAME + " h";
+
+  private static final String SQL_SELECT_BY_ID_CLAUSE =
+      " WHERE h.id = :id";
+
+  private static final String SQL_SELECT_SEARCH_OWNER_JOIN =
+      " JOIN owner o ON o.id = h.owner_id";
+
+  private static final String SQL_SELECT_SEARCH_WHERE =
+      " WHERE 1 = 1";
+
+  private static final String SQL_SELECT_SEARCH_NAME_CLAUSE =
+      " AND LOWER(h.name) LIKE :name";
+
+  private static final String SQL_SELECT_SEARCH_DESCRIPTION_CLAUSE =
+      " AND LOWER(h.description) LIKE :description";
+
+  private static final String SQL_SELECT_SEARCH_BORN_BEFORE_CLAUSE =
+      " AND h.date_of_birth < :born_before";
+
+  private static final String SQL_SELECT_SEARCH_BORN_AFTER_CLAUSE =
+      " AND h.date_of_birth > :born_after";
+
+  private static final String SQL_SELECT_SEARCH_BORN_FROM_CLAUSE =
+      " AND h.date_of_birth >= :born_from";
+
+  private static final String SQL_SELECT_SEARCH_BORN_UNTIL_CLAUSE =
+      " AND h.date_of_birth < :born_until";
+
+  private static final String SQL_SELECT_SEARCH_OWNER_IDS_CLAUSE =
+      " AND h.owner_id IN (:owner_ids)";
+
+  private static final String SQL_SELECT_SEARCH_SEX_CLAUSE =
+      " AND h.sex = :sex";
+
+  private static final String SQL_SELECT_SEARCH_OWNER_NAME_CLAUSE =
+      " AND LOWER(o.first_name || ' ' || o.last_name) LIKE :owner_name";
+
+  private static final String SQL_SELECT_SEARCH_IDS_CLAUSE = " AND h.id IN (:ids)";
+
+  private static final String SQL_SELECT_SEARCH_ORDER_CLAUSE = " ORDER BY h.id";
+
+  private static final String SQL_SELECT_SEARCH_ORDER_BY_NAME_CLAUSE = " ORDER BY h.name, h.id";
+
+  private static final String SQL_SELECT_SEARCH_ORDER_BY_DATE_OF_BIRTH_CLAUSE = " ORDER BY h.date_of_birth, h.id";
+
+  private static final String SQL_SELECT_SEARCH_AFTER_ID_CLAUSE =
+      " AND h.id > :after_id";
+
+  // Written as a disjunction instead of a row value comparison, so the database can use the index on the sort key
+  private static final String SQL_SELECT_SEARCH_AFTER_NAME_CLAUSE =
+      " AND (h.name > :after_name OR h.name = :after_name AND h.id > :after_id)";
+
+  private static final String SQL_SELECT_SEARCH_AFTER_DATE_OF_BIRTH_CLAUSE =
+      " AND (h.date_of_birth > :after_date_of_birth OR h.date_of_birth = :after_date_of_birth AND h.id > :after_id)";
+
+  private static final String SQL_SELECT_SEARCH_LIMIT_CLAUSE = " LIMIT :limit";
+
   private static final String SQL_UPDATE =
       "UPDATE " + TABLE_NAME + " SET "
           + "name = :name, "
@@ -63,11 +158,36 @@ public class HorseJdbcDao implements HorseDao {
           """;
 
 
+  // Maximum number of horses kept in the cache
+  private static final int CACHE_SIZE = 10_000;
+  // Rows the driver fetches at a time when reading all horses, instead of the whole result at once
+  private static final int STREAM_FETCH_SIZE = 1_000;
+
   private final JdbcClient jdbcClient;
+  private final JdbcClient streamingJdbcClient;
+  // The fluent JDBC client does not support batch statements
+  private final NamedParameterJdbcTemplate batchJdbcTemplate;
+  private final EntityCache<Horse> cache = new EntityCache<>(CACHE_SIZE);
 
+  /**
+   * Constructs the {@code HorseJdbcDao}, with a separate streaming JDBC client on the given {@link DataSource} for the export.
+   */
   @Autowired
-  public HorseJdbcDao(JdbcClient jdbcClient) {
+  public HorseJdbcDao(JdbcClient jdbcClient, NamedParameterJdbcTemplate batchJdbcTemplate, DataSource dataSource) {
     this.jdbcClient = jdbcClient;
+    this.batchJdbcTemplate = batchJdbcTemplate;
+    var streamingJdbcTemplate = new JdbcTemplate(dataSource);
+    streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+    this.streamingJdbcClient = JdbcClient.create(streamingJdbcTemplate);
+  }
+
+  /**
+   * Get the statistics of the cache of horses in front of the database.
+   *
+   * @return the current statistics of the cache
+   */
+  public EntityCache.Stats getCacheStats() {
+    return cache.stats();
   }
 
   @Override
@@ -79,9 +199,175 @@ public class HorseJdbcDao implements HorseDao {
         .list();
   }
 
+  @Override
+  public void forEachWithOwner(BiConsumer<Horse, Owner> action) {
+    LOG.trace("forEachWithOwner()");
+    streamingJdbcClient
+        .sql(SQL_SELECT_ALL_WITH_OWNERS_ORDERED)
+        .query((RowCallbackHandler) result -> {
+          var horse = mapRow(result, result.getRow());
+          var owner = horse.ownerId() == null ? null : new Owner(
+              horse.ownerId(),
+              result.getString("owner_first_name"),
+              result.getString("owner_last_name"),
+              result.getString("owner_email"));
+          action.accept(horse, owner);
+        });
+  }
+
+  @Override
+  public List<Horse> search(HorseSearchDto searchParameters) {
+    return search(searchParameters, null);
+  }
+
+  @Override
+  public List<Horse> search(HorseSearchDto searchParameters, Collection<Long> candidateIds) {
+    return search(searchParameters, candidateIds, null);
+  }
+
+  @Override
+  public List<Horse> search(HorseSearchDto searchParameters, Collection<Long> candidateIds, Set<HorseField> fields) {
+    LOG.trace("search({}, {}, {})", searchParameters, candidateIds, fields);
+    Map<String, Object> params = new HashMap<>();
+    var ownerName = searchParameters.ownerName();
+    var joinOwner = ownerName != null && !ownerName.isBlank();
+    var cursor = searchParameters.cursor();
+    var sort = cursor != null ? cursor.sort() : searchParameters.sort() != null ? searchParameters.sort() : HorseSort.ID;
+
+    var columns = columnsOf(fields, sort);
+    var query = new StringBuilder(columns == null ? SQL_SELECT_SEARCH : selectOf(columns));
+    if (joinOwner) {
+      query.append(SQL_SELECT_SEARCH_OWNER_JOIN);
+    }
+    query.append(SQL_SELECT_SEARCH_WHERE);
+
+    var name = searchParameters.name();
+    if (name != null && !name.isBlank()) {
+      query.append(SQL_SELECT_SEARCH_NAME_CLAUSE);
+      params.put("name", containsPattern(name));
+    }
+    var description = searchParameters.description();
+    if (description != null && !description.isBlank()) {
+      query.append(SQL_SELECT_SEARCH_DESCRIPTION_CLAUSE);
+      params.put("description", containsPattern(description));
+    }
+    if (searchParameters.bornBefore() != null) {
+      query.append(SQL_SELECT_SEARCH_BORN_BEFORE_CLAUSE);
+      params.put("born_before", searchParameters.bornBefore());
+    }
+    if (searchParameters.bornAfter() != null) {
+      query.append(SQL_SELECT_SEARCH_BORN_AFTER_CLAUSE);
+      params.put("born_after", searchParameters.bornAfter());
+    }
+    if (searchParameters.birthYearFrom() != null) {
+      query.append(SQL_SELECT_SEARCH_BORN_FROM_CLAUSE);
+      params.put("born_from", LocalDate.of(searchParameters.birthYearFrom(), 1, 1));
+    }
+    if (searchParameters.birthYearTo() != null) {
+      query.append(SQL_SELECT_SEARCH_BORN_UNTIL_CLAUSE);
+      params.put("born_until", LocalDate.of(searchParameters.birthYearTo() + 1, 1, 1));
+    }
+    var ownerIds = searchParameters.ownerIds();
+    if (ownerIds != null && !ownerIds.isEmpty()) {
+      query.append(SQL_SELECT_SEARCH_OWNER_IDS_CLAUSE);
+      params.put("owner_ids", ownerIds);
+    }
+    if (searchParameters.sex() != null) {
+      query.append(SQL_SELECT_SEARCH_SEX_CLAUSE);
+      params.put("sex", searchParameters.sex().toString());
+    }
+    if (joinOwner) {
+      query.append(SQL_SELECT_SEARCH_OWNER_NAME_CLAUSE);
+      params.put("owner_name", containsPattern(ownerName));
+    }
+
+    if (cursor != null) {
+      query.append(switch (sort) {
+        case ID -> SQL_SELECT_SEARCH_AFTER_ID_CLAUSE;
+        case NAME -> SQL_SELECT_SEARCH_AFTER_NAME_CLAUSE;
+        case DATE_OF_BIRTH -> SQL_SELECT_SEARCH_AFTER_DATE_OF_BIRTH_CLAUSE;
+      });
+      params.put("after_id", cursor.id());
+      params.put("after_name", cursor.name());
+      params.put("after_date_of_birth", cursor.dateOfBirth());
+    }
+    var order = switch (sort) {
+      case ID -> SQL_SELECT_SEARCH_ORDER_CLAUSE;
+      case NAME -> SQL_SELECT_SEARCH_ORDER_BY_NAME_CLAUSE;
+      case DATE_OF_BIRTH -> SQL_SELECT_SEARCH_ORDER_BY_DATE_OF_BIRTH_CLAUSE;
+    };
+
+    var limit = searchParameters.limit();
+    boolean limited = limit != null && limit > 0;
+    RowMapper<Horse> rowMapper = columns == null ? this::mapRow : (result, rownum) -> mapRow(result, columns);
+    if (candidateIds == null) {
+      query.append(order);
+      if (limited) {
+        query.append(SQL_SELECT_SEARCH_LIMIT_CLAUSE);
+        params.put("limit", limit);
+      }
+      return jdbcClient
+          .sql(query.toString())
+          .params(params)
+          .query(rowMapper)
+          .list();
+    }
+
+    // The chunks are ascending ranges of IDs, so their results ordered by ID can be concatenated until the limit is reached,
+    // results in any other order are merged, with every chunk contributing at most the limit
+    query.append(SQL_SELECT_SEARCH_IDS_CLAUSE).append(order);
+    if (limited) {
+      query.append(SQL_SELECT_SEARCH_LIMIT_CLAUSE);
+    }
+    List<Horse> horses = new ArrayList<>();
+    for (var chunk : IdChunks.of(candidateIds)) {
+      params.put("ids", chunk);
+      if (limited) {
+        params.put("limit", sort == HorseSort.ID ? limit - horses.size() : limit);
+      }
+      horses.addAll(jdbcClient
+          .sql(query.toString())
+          .params(params)
+          .query(rowMapper)
+          .list());
+      if (limited && sort == HorseSort.ID && horses.size() >= limit) {
+        break;
+      }
+    }
+    if (sort != HorseSort.ID) {
+      horses.sort(sort == HorseSort.NAME
+          ? Comparator.comparing(Horse::name).thenComparing(Horse::id)
+          : Comparator.comparing(Horse::dateOfBirth).thenComparing(Horse::id));
+      if (limited && horses.size() > limit) {
+        horses = new ArrayList<>(horses.subList(0, limit));
+      }
+    }
+    return horses;
+  }
+
+  /**
+   * Builds a case-insensitive LIKE pattern, that matches any value containing {@code value} as a substring.
+   * LIKE wildcards in {@code value} are escaped, so they are matched literally.
+   *
+   * @param value the substring to search for
+   * @return the LIKE pattern to use with a {@code LOWER(column)} expression
+   */
+  private static String containsPattern(String value) {
+    var escaped = value.toLowerCase()
+        .replace("\\", "\\\\")
+        .replace("%", "\\%")
+        .replace("_", "\\_");
+    return "%" + escaped + "%";
+  }
+
   @Override
   public Horse getById(long id) throws NotFoundException {
     LOG.trace("getById({})", id);
+    Horse cached = cache.get(id);
+    if (cached != null) {
+      return cached;
+    }
+    long version = cache.version();
     List<Horse> horses = jdbcClient
         .sql(SQL_SELECT_BY_ID)
         .param("id", id)
@@ -96,9 +382,59 @@ public class HorseJdbcDao implements HorseDao {
       throw new FatalException("Too many horses with ID %d found".formatted(id));
     }
 
+    cache.put(id, horses.getFirst(), version);
     return horses.getFirst();
   }
 
+  @Override
+  public Horse getById(long id, Set<HorseField> fields) throws NotFoundException {
+    LOG.trace("getById({}, {})", id, fields);
+    var columns = columnsOf(fields, null);
+    if (columns == null) {
+      return getById(id);
+    }
+    Horse cached = cache.get(id);
+    if (cached != null) {
+      return project(cached, columns);
+    }
+    // Partially loaded horses are not cached, as the cache holds complete horses only
+    List<Horse> horses = jdbcClient
+        .sql(selectOf(columns) + SQL_SELECT_BY_ID_CLAUSE)
+        .param("id", id)
+        .query((result, rownum) -> mapRow(result, columns))
+        .list();
+    if (horses.isEmpty()) {
+      throw new NotFoundException("No horse with ID %d found".formatted(id));
+    }
+    return horses.getFirst();
+  }
+
+  @Override
+  public List<Horse> getAllById(Collection<Long> ids) {
+    LOG.trace("getAllById({})", ids);
+    Map<Long, Horse> horses = new TreeMap<>();
+    List<Long> missingIds = new ArrayList<>();
+    for (var id : ids.stream().distinct().toList()) {
+      Horse cached = cache.get(id);
+      if (cached != null) {
+        horses.put(id, cached);
+      } else {
+        missingIds.add(id);
+      }
+    }
+    long version = cache.version();
+    for (var chunk : IdChunks.of(missingIds)) {
+      for (var horse : jdbcClient
+          .sql(SQL_SELECT_ALL_BY_ID)
+          .param("ids", chunk)
+          .query(this::mapRow)
+          .list()) {
+        horses.put(horse.id(), horse);
+        cache.put(horse.id(), horse, version);
+      }
+    }
+    return new ArrayList<>(horses.values());
+  }
 
   @Override
   public Horse create(HorseCreateDto horse) {
@@ -126,6 +462,7 @@ public class HorseJdbcDao implements HorseDao {
     }
 
     long generatedId = key.longValue();
+    cache.invalidate(generatedId);
     return new Horse(
         generatedId,
         horse.name(),
@@ -134,6 +471,40 @@ public class HorseJdbcDao implements HorseDao {
         horse.sex(),
         horse.ownerId());
   }
+  @Override
+  public List<Horse> createAll(List<HorseCreateDto> horses) {
+    LOG.trace("createAll({})", horses.size());
+    var batchArgs = horses.stream()
+        .map(horse -> new MapSqlParameterSource()
+            .addValue("name", horse.name())
+            .addValue("description", horse.description())
+            .addValue("date_of_birth", horse.dateOfBirth())
+            .addValue("sex", horse.sex().toString())
+            .addValue("owner_id", horse.ownerId()))
+        .toArray(SqlParameterSource[]::new);
+    GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+    int[] created = batchJdbcTemplate.batchUpdate(SQL_INSERT, batchArgs, keyHolder, new String[] {"id"});
+
+    var keys = keyHolder.getKeyList();
+    if (created.length != horses.size() || keys.size() != horses.size()) {
+      throw new FatalException("%d horses inserted, expected %d".formatted(keys.size(), horses.size()));
+    }
+    List<Horse> result = new ArrayList<>(horses.size());
+    for (int i = 0; i < horses.size(); i++) {
+      var horse = horses.get(i);
+      long generatedId = ((Number) keys.get(i).values().iterator().next()).longValue();
+      cache.invalidate(generatedId);
+      result.add(new Horse(
+          generatedId,
+          horse.name(),
+          horse.description(),
+          horse.dateOfBirth(),
+          horse.sex(),
+          horse.ownerId()));
+    }
+    return result;
+  }
+
 
   @Override
   public Horse update(HorseUpdateDto horse) throws NotFoundException {
@@ -152,6 +523,7 @@ public class HorseJdbcDao implements HorseDao {
         .param("id", horse.id())
         .update();
 
+    cache.invalidate(horse.id());
     if (updated != 1) {
       throw new FatalException("%d horses updated, expected exactly 1".formatted(updated));
     }
@@ -165,6 +537,60 @@ public class HorseJdbcDao implements HorseDao {
         horse.ownerId());
   }
 
+  /**
+   * Gets the columns to load for the given fields and the key of the given order.
+   *
+   * @return the columns, always including the ID, or null if all columns are to be loaded
+   */
+  private static Set<String> columnsOf(Set<HorseField> fields, HorseSort sort) {
+    if (fields == null) {
+      return null;
+    }
+    Set<String> columns = new LinkedHashSet<>();
+    columns.add(HorseField.ID.column());
+    for (var field : fields) {
+      if (field.column() != null) {
+        columns.add(field.column());
+      }
+    }
+    if (sort == HorseSort.NAME) {
+      columns.add(HorseField.NAME.column());
+    } else if (sort == HorseSort.DATE_OF_BIRTH) {
+      columns.add(HorseField.DATE_OF_BIRTH.column());
+    }
+    return columns;
+  }
+
+  private static String selectOf(Set<String> columns) {
+    return SQL_SELECT_COLUMNS.formatted(columns.stream().map(column -> "h." + column).collect(Collectors.joining(", ")));
+  }
+
+  /**
+   * Maps a row with only the given columns, leaving the fields of all other columns null.
+   */
+  private Horse mapRow(ResultSet result, Set<String> columns) throws SQLException {
+    return new Horse(
+        result.getLong("id"),
+        columns.contains("name") ? result.getString("name") : null,
+        columns.contains("description") ? result.getString("description") : null,
+        columns.contains("date_of_birth") ? result.getDate("date_of_birth").toLocalDate() : null,
+        columns.contains("sex") ? Sex.valueOf(result.getString("sex")) : null,
+        columns.contains("owner_id") ? result.getObject("owner_id", Long.class) : null);
+  }
+
+  /**
+   * Copies a horse with only the fields of the given columns, as if it had been loaded with only these columns.
+   */
+  private static Horse project(Horse horse, Set<String> columns) {
+    return new Horse(
+        horse.id(),
+        columns.contains("name") ? horse.name() : null,
+        columns.contains("description") ? horse.description() : null,
+        columns.contains("date_of_birth") ? horse.dateOfBirth() : null,
+        columns.contains("sex") ? horse.sex() : null,
+        columns.contains("owner_id") ? horse.ownerId() : null);
+  }
+
   private Horse mapRow(ResultSet result, int rownum) throws SQLException {
     return new Horse(
         result.getLong("id"),
@@ -185,6 +611,7 @@ public class HorseJdbcDao implements HorseDao {
         .sql(SQL_DELETE)
         .param("id", id)
         .update();
+    cache.invalidate(id);
     if (deleted != 1) {
       throw new FatalException("%d horses deleted, expected exactly 1".formatted(deleted));
     }
@@ -0,0 +1,34 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Splits collections of IDs into chunks, so that the {@code IN} lists of queries stay at a bounded size.
+ */
+final class IdChunks {
+  /**
+   * Maximum number of IDs bound to a single {@code IN} list.
+   */
+  static final int MAX_SIZE = 1000;
+
+  private IdChunks() {
+  }
+
+  /**
+   * Splits the given IDs into chunks of at most {@link #MAX_SIZE} IDs.
+   * The IDs are deduplicated and sorted, so results ordered by ID can be concatenated in the order of the chunks.
+   *
+   * @param ids the IDs to split
+   * @return the chunks of IDs, empty if no IDs are given
+   */
+  static List<List<Long>> of(Collection<Long> ids) {
+    var sortedIds = ids.stream().distinct().sorted().toList();
+    List<List<Long>> chunks = new ArrayList<>();
+    for (int from = 0; from < sortedIds.size(); from += MAX_SIZE) {
+      chunks.add(sortedIds.subList(from, Math.min(from + MAX_SIZE, sortedIds.size())));
+    }
+    return chunks;
+  }
+}
@@ -5,16 +5,25 @@ import at.ac.tuwien.sepr.assignment.individual.dto.OwnerSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
 import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.index.PrefixIndex;
+import at.ac.tuwien.sepr.assignment.individual.index.TrigramIndex;
 import at.ac.tuwien.sepr.assignment.individual.persistence.OwnerDao;
 import java.lang.invoke.MethodHandles;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -22,9 +31,12 @@ import org.springframework.stereotype.Repository;
 
 /**
  * JDBC implementation of {@link OwnerDao} for interacting with the database.
+ * Owners fetched by ID are kept in an {@link EntityCache}, which is invalidated by every write.
+ * The full names of all owners are held in memory and indexed by their prefixes and trigrams,
+ * so searches by name do not have to scan the whole table.
  */
 @Repository
-public class OwnerJdbcDao implements OwnerDao {
+public class OwnerJdbcDao implements OwnerDao, SmartInitializingSingleton {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private static final String TABLE_NAME = "owner";
   private static final String SQL_SELECT_BY_ID =
@@ -35,6 +47,9 @@ public class OwnerJdbcDao implements OwnerDao {
       "SELECT * FROM " + TABLE_NAME
               + " WHERE id IN (:ids)";
 
+  private static final String SQL_SELECT_EVERY_OWNER =
+      "SELECT * FROM " + TABLE_NAME;
+
   private static final String SQL_SELECT_SEARCH =
       "SELECT * FROM " + TABLE_NAME
               + " WHERE UPPER(first_name || ' ' || last_name) LIKE UPPER('%%' || COALESCE(:name, '') || '%%')";
@@ -45,16 +60,60 @@ public class OwnerJdbcDao implements OwnerDao {
       "INSERT INTO " + TABLE_NAME + " (first_name, last_name, email)"
       + " VALUES (:first_name, :last_name, :email)";
 
+  // Maximum number of owners returned by a search, that does not set a maximum itself
+  private static final int DEFAULT_MAX_AMOUNT = 100;
+  // Maximum number of owners kept in the cache
+  private static final int CACHE_SIZE = 10_000;
+
   private final JdbcClient jdbcClient;
+  private final EntityCache<Owner> cache = new EntityCache<>(CACHE_SIZE);
+  private final PrefixIndex namePrefixes = new PrefixIndex();
+  private final TrigramIndex names = new TrigramIndex();
+  // Case-folded full names by ID, for verifying the candidates of the trigram index
+  private final Map<Long, String> fullNames = new ConcurrentSkipListMap<>();
 
   @Autowired
   public OwnerJdbcDao(JdbcClient jdbcClient) {
     this.jdbcClient = jdbcClient;
   }
 
+  /**
+   * Loads the full names of all owners into the name index, after all beans have been created.
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    var owners = jdbcClient
+        .sql(SQL_SELECT_EVERY_OWNER)
+        .query(this::mapRow)
+        .list();
+    owners.forEach(this::indexName);
+    LOG.info("Loaded owner name index with {} owners", owners.size());
+  }
+
+  private void indexName(Owner owner) {
+    var fullName = owner.firstName() + " " + owner.lastName();
+    namePrefixes.put(owner.id(), fullName);
+    names.put(owner.id(), fullName);
+    fullNames.put(owner.id(), TrigramIndex.fold(fullName));
+  }
+
+  /**
+   * Get the statistics of the cache of owners in front of the database.
+   *
+   * @return the current statistics of the cache
+   */
+  public EntityCache.Stats getCacheStats() {
+    return cache.stats();
+  }
+
   @Override
   public Owner getById(long id) throws NotFoundException {
     LOG.trace("getById({})", id);
+    Owner cached = cache.get(id);
+    if (cached != null) {
+      return cached;
+    }
+    long version = cache.version();
     List<Owner> owners = jdbcClient
         .sql(SQL_SELECT_BY_ID)
         .param("id", id)
@@ -67,6 +126,7 @@ public class OwnerJdbcDao implements OwnerDao {
       // If this happens, something is wrong with either the DB or the select
       throw new FatalException("Found more than one owner with ID %d".formatted(id));
     }
+    cache.put(id, owners.getFirst(), version);
     return owners.getFirst();
   }
 
@@ -93,42 +153,86 @@ public class OwnerJdbcDao implements OwnerDao {
       throw new FatalException("Could not extract key for newly created owner. There is probably a programming error…");
     }
 
-    return new Owner(
+    cache.invalidate(key.longValue());
+    var owner = new Owner(
         key.longValue(),
         newOwner.firstName(),
         newOwner.lastName(),
         newOwner.email());
+    indexName(owner);
+    return owner;
   }
 
   @Override
   public Collection<Owner> getAllById(Collection<Long> ids) {
     LOG.trace("getAllById({})", ids);
-    return jdbcClient
-        .sql(SQL_SELECT_ALL)
-        .param("ids", ids)
-        .query(this::mapRow)
-        .list();
+    Map<Long, Owner> owners = new TreeMap<>();
+    List<Long> missingIds = new ArrayList<>();
+    for (var id : ids.stream().distinct().toList()) {
+      Owner cached = cache.get(id);
+      if (cached != null) {
+        owners.put(id, cached);
+      } else {
+        missingIds.add(id);
+      }
+    }
+    long version = cache.version();
+    for (var chunk : IdChunks.of(missingIds)) {
+      for (var owner : jdbcClient
+          .sql(SQL_SELECT_ALL)
+          .param("ids", chunk)
+          .query(this::mapRow)
+          .list()) {
+        owners.put(owner.id(), owner);
+        cache.put(owner.id(), owner, version);
+      }
+    }
+    return owners.values();
   }
 
   @Override
   public Collection<Owner> search(OwnerSearchDto searchParameters) {
     LOG.trace("search({})", searchParameters);
-    var query = SQL_SELECT_SEARCH;
-
-    Map<String, Object> params = new HashMap<>();
-    params.put("name", searchParameters.name());
+    var name = searchParameters.name();
+    int limit = searchParameters.maxAmount() != null ? searchParameters.maxAmount() : DEFAULT_MAX_AMOUNT;
+    if (name == null || name.isBlank()) {
+      Map<String, Object> params = new HashMap<>();
+      params.put("name", null);
+      params.put("limit", limit);
+      return jdbcClient
+          .sql(SQL_SELECT_SEARCH + SQL_SELECT_SEARCH_LIMIT_CLAUSE)
+          .params(params)
+          .query(this::mapRow)
+          .list();
+    }
 
-    var maxAmount = searchParameters.maxAmount();
-    if (maxAmount != null) {
-      query += SQL_SELECT_SEARCH_LIMIT_CLAUSE;
-      params.put("limit", maxAmount);
+    // Full names starting with the search term first, then full names with a word starting with it
+    List<Long> ids = new ArrayList<>(namePrefixes.complete(name, limit));
+
+    // Then full names containing the search term anywhere, in the order of their IDs
+    var term = TrigramIndex.fold(name);
+    Iterable<Long> candidates = TrigramIndex.canNarrow(name)
+        ? Arrays.stream(names.candidates(name)).boxed().toList()
+        : fullNames.keySet();
+    var completed = new HashSet<>(ids);
+    for (var id : candidates) {
+      if (ids.size() >= limit) {
+        break;
+      }
+      var fullName = fullNames.get(id);
+      if (fullName != null && fullName.contains(term) && !completed.contains(id)) {
+        ids.add(id);
+      }
     }
 
-    return jdbcClient
-        .sql(query)
-        .params(params)
-        .query(this::mapRow)
-        .list();
+    Map<Long, Owner> owners = new HashMap<>();
+    for (var owner : getAllById(ids)) {
+      owners.put(owner.id(), owner);
+    }
+    return ids.stream()
+        .map(owners::get)
+        .filter(Objects::nonNull)
+        .toList();
   }
 
   private Owner mapRow(ResultSet resultSet, int i) throws SQLException {
@@ -6,10 +6,16 @@ import at.ac.tuwien.sepr.assignment.individual.persistence.ParentDao;
 import java.lang.invoke.MethodHandles;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Repository;
 
@@ -22,14 +28,26 @@ public class ParentJdbcDao implements ParentDao {
 
   private static final String TABLE_NAME = "horse_parent";
 
+  private static final String SQL_SELECT_ALL =
+      "SELECT horse_id, parent_id FROM " + TABLE_NAME
+          + " ORDER BY horse_id, parent_id";
+
   private static final String SQL_SELECT_BY_HORSE_ID =
       "SELECT horse_id, parent_id FROM " + TABLE_NAME
           + " WHERE horse_id = :horse_id ORDER BY parent_id";
 
+  private static final String SQL_SELECT_BY_HORSE_IDS =
+      "SELECT horse_id, parent_id FROM " + TABLE_NAME
+          + " WHERE horse_id IN (:horse_ids) ORDER BY horse_id, parent_id";
+
   private static final String SQL_SELECT_BY_PARENT_ID =
       "SELECT horse_id, parent_id FROM " + TABLE_NAME
           + " WHERE parent_id = :parent_id ORDER BY horse_id";
 
+  private static final String SQL_SELECT_BY_PARENT_IDS =
+      "SELECT horse_id, parent_id FROM " + TABLE_NAME
+          + " WHERE parent_id IN (:parent_ids) ORDER BY horse_id, parent_id";
+
   private static final String SQL_DELETE_BY_HORSE_ID =
       "DELETE FROM " + TABLE_NAME + " WHERE horse_id = :horse_id";
 
@@ -40,10 +58,22 @@ public class ParentJdbcDao implements ParentDao {
       "INSERT INTO " + TABLE_NAME + " (horse_id, parent_id) VALUES (:horse_id, :parent_id)";
 
   private final JdbcClient jdbcClient;
+  // The fluent JDBC client does not support batch statements
+  private final NamedParameterJdbcTemplate batchJdbcTemplate;
 
   @Autowired
-  public ParentJdbcDao(JdbcClient jdbcClient) {
+  public ParentJdbcDao(JdbcClient jdbcClient, NamedParameterJdbcTemplate batchJdbcTemplate) {
     this.jdbcClient = jdbcClient;
+    this.batchJdbcTemplate = batchJdbcTemplate;
+  }
+
+  @Override
+  public List<Parent> getAll() {
+    LOG.trace("getAll()");
+    return jdbcClient
+        .sql(SQL_SELECT_ALL)
+        .query(this::mapRow)
+        .list();
   }
 
   @Override
@@ -56,6 +86,20 @@ public class ParentJdbcDao implements ParentDao {
         .list();
   }
 
+  @Override
+  public List<Parent> getParentsByHorseIds(Collection<Long> horseIds) {
+    LOG.trace("getParentsByHorseIds({})", horseIds);
+    List<Parent> parents = new ArrayList<>();
+    for (var chunk : IdChunks.of(horseIds)) {
+      parents.addAll(jdbcClient
+          .sql(SQL_SELECT_BY_HORSE_IDS)
+          .param("horse_ids", chunk)
+          .query(this::mapRow)
+          .list());
+    }
+    return parents;
+  }
+
   @Override
   public List<Parent> getChildrenByParentId(long parentId) {
     LOG.trace("getChildrenByParentId({})", parentId);
@@ -66,6 +110,20 @@ public class ParentJdbcDao implements ParentDao {
         .list();
   }
 
+  @Override
+  public List<Parent> getChildrenByParentIds(Collection<Long> parentIds) {
+    LOG.trace("getChildrenByParentIds({})", parentIds);
+    List<Parent> parents = new ArrayList<>();
+    for (var chunk : IdChunks.of(parentIds)) {
+      parents.addAll(jdbcClient
+          .sql(SQL_SELECT_BY_PARENT_IDS)
+          .param("parent_ids", chunk)
+          .query(this::mapRow)
+          .list());
+    }
+    return parents;
+  }
+
   @Override
   public void setParents(long horseId, List<Long> parentIds) {
     LOG.trace("setParents({}, {})", horseId, parentIds);
@@ -87,6 +145,24 @@ public class ParentJdbcDao implements ParentDao {
     }
   }
 
+  @Override
+  public void addParents(Map<Long, List<Long>> parentIdsByHorseId) {
+    LOG.trace("addParents({})", parentIdsByHorseId.size());
+    var batchArgs = parentIdsByHorseId.entrySet().stream()
+        .flatMap(entry -> entry.getValue().stream()
+            .map(parentId -> new MapSqlParameterSource()
+                .addValue("horse_id", entry.getKey())
+                .addValue("parent_id", parentId)))
+        .toArray(SqlParameterSource[]::new);
+    if (batchArgs.length == 0) {
+      return;
+    }
+    int[] inserted = batchJdbcTemplate.batchUpdate(SQL_INSERT, batchArgs);
+    if (inserted.length != batchArgs.length) {
+      throw new FatalException("%d parent relationships inserted, expected %d".formatted(inserted.length, batchArgs.length));
+    }
+  }
+
   @Override
   public void deleteParentsByHorseId(long horseId) {
     LOG.trace("deleteParentsByHorseId({})", horseId);
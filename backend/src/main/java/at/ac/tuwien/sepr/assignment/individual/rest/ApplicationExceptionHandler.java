@@ -1,5 +1,6 @@
 package at.ac.tuwien.sepr.assignment.individual.rest;
 
+import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
 import java.lang.invoke.MethodHandles;
 import org.slf4j.Logger;
@@ -31,4 +32,18 @@ public class ApplicationExceptionHandler {
     return new ValidationErrorRestDto(e.summary(), e.errors());
   }
 
+  /**
+   * Handles {@link ConflictException} by returning a 409 Conflict response.
+   *
+   * @param e the conflict exception
+   * @return a {@link ValidationErrorRestDto} containing the details of the conflicts
+   */
+  @ExceptionHandler
+  @ResponseStatus(HttpStatus.CONFLICT)
+  @ResponseBody
+  public ValidationErrorRestDto handleConflictException(ConflictException e) {
+    LOG.warn("Terminating request processing with status 409 due to {}: {}", e.getClass().getSimpleName(), e.getMessage());
+    return new ValidationErrorRestDto(e.summary(), e.errors());
+  }
+
 }
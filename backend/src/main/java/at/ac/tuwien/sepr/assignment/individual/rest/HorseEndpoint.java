@@ -1,32 +1,56 @@
 package at.ac.tuwien.sepr.assignment.individual.rest;
 
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseBatchCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseFacetsDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseFamilyTreeDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseInbreedingDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListWithOwnersDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseParentSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseRelationshipDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.SearchCacheStatsDto;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
 import at.ac.tuwien.sepr.assignment.individual.service.HorseService;
+import at.ac.tuwien.sepr.assignment.individual.service.InbreedingService;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST controller for managing horse-related operations.
@@ -38,25 +62,150 @@ import org.springframework.web.server.ResponseStatusException;
 public class HorseEndpoint {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   static final String BASE_PATH = "/horses";
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  // Request parameter asking for the owners of listed horses to be side-loaded
+  static final String SIDELOAD_OWNERS_PARAM = "sideloadOwners";
+  // Request parameter restricting the returned fields of horses
+  static final String FIELDS_PARAM = "fields";
 
   private final HorseService service;
+  private final InbreedingService inbreedingService;
+  private final ObjectMapper objectMapper;
 
+  /**
+   * Constructs the {@code HorseEndpoint} with the services it delegates to and the object mapper used by the export.
+   */
   @Autowired
-  public HorseEndpoint(HorseService service) {
+  public HorseEndpoint(HorseService service, InbreedingService inbreedingService, ObjectMapper objectMapper) {
     this.service = service;
+    this.inbreedingService = inbreedingService;
+    this.objectMapper = objectMapper;
   }
 
   /**
    * Searches for horses based on the given search parameters.
+   * If a limited page is full, the cursor of the next page is returned in the {@value #NEXT_CURSOR_HEADER} header.
    *
    * @param searchParameters the parameters to filter the horse search
-   * @return a stream of {@link HorseListDto} matching the search criteria
+   * @return the {@link HorseListDto}s matching the search criteria
    */
   @GetMapping
-  public Stream<HorseListDto> searchHorses(HorseSearchDto searchParameters) {
+  public ResponseEntity<List<HorseListDto>> searchHorses(HorseSearchDto searchParameters) {
     LOG.info("GET " + BASE_PATH);
     LOG.debug("request parameters: {}", searchParameters);
-    return service.searchHorses(searchParameters);
+    return searchPage(searchParameters, null, Function.identity());
+  }
+
+  /**
+   * Searches for horses based on the given search parameters, like {@link #searchHorses(HorseSearchDto)},
+   * but returns the owners side-loaded, so every owner is sent only once instead of with each of its horses.
+   *
+   * @param searchParameters the parameters to filter the horse search
+   * @return the horses matching the search criteria, referring to their owners by ID, and their owners
+   */
+  @GetMapping(params = {SIDELOAD_OWNERS_PARAM + "=true", "!" + FIELDS_PARAM})
+  public ResponseEntity<HorseListWithOwnersDto> searchHorsesWithOwners(HorseSearchDto searchParameters) {
+    LOG.info("GET " + BASE_PATH + "?" + SIDELOAD_OWNERS_PARAM + "=true");
+    LOG.debug("request parameters: {}", searchParameters);
+    return searchPage(searchParameters, null, service::sideloadOwners);
+  }
+
+  /**
+   * Searches for horses based on the given search parameters, like {@link #searchHorses(HorseSearchDto)},
+   * but only returns the requested fields of them, which are the only ones loaded from the database.
+   *
+   * @param searchParameters the parameters to filter the horse search
+   * @param fields the comma-separated names of the fields to return, the ID is always returned
+   * @return the requested fields of the horses matching the search criteria
+   * @throws ResponseStatusException if a field is unknown
+   */
+  @GetMapping(params = FIELDS_PARAM)
+  public ResponseEntity<List<Map<String, Object>>> searchHorseFields(HorseSearchDto searchParameters, @RequestParam(FIELDS_PARAM) String fields) {
+    LOG.info("GET " + BASE_PATH + "?" + FIELDS_PARAM + "={}", fields);
+    LOG.debug("request parameters: {}", searchParameters);
+    var requested = fieldsOf(fields);
+    return searchPage(searchParameters, requested, horses -> service.selectFields(horses, requested));
+  }
+
+  /**
+   * Searches for a page of horses, and adds the cursor of the next page to the response, if there is one.
+   */
+  private <T> ResponseEntity<T> searchPage(HorseSearchDto searchParameters, Set<HorseField> fields, Function<List<HorseListDto>, T> body) {
+    var horses = service.searchHorses(searchParameters, fields).toList();
+    var response = ResponseEntity.ok();
+    var next = service.nextCursor(searchParameters, horses);
+    if (next != null) {
+      response.header(NEXT_CURSOR_HEADER, next.toToken());
+    }
+    return response.body(body.apply(horses));
+  }
+
+  /**
+   * Exports all horses, ordered by ID, writing every horse to the response as soon as it is read from the database.
+   * Clients accepting {@code application/x-ndjson} get one JSON object per line, all other clients a JSON array.
+   * If the client disconnects, the export stops and the database connection is released.
+   *
+   * @param accept the media types accepted by the client
+   * @return the response body, written while the horses are read
+   */
+  @GetMapping(path = "/export", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  public ResponseEntity<StreamingResponseBody> exportHorses(@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+    LOG.info("GET " + BASE_PATH + "/export");
+    boolean ndjson = accept != null && MediaType.parseMediaTypes(accept).stream()
+        .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+    StreamingResponseBody body = out -> {
+      try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+        if (ndjson) {
+          // Lines are ended explicitly, instead of separating the objects with spaces
+          generator.setRootValueSeparator(null);
+        } else {
+          generator.writeStartArray();
+        }
+        service.exportHorses(horse -> {
+          try {
+            generator.writeObject(horse);
+            if (ndjson) {
+              generator.writeRaw('\n');
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+        if (!ndjson) {
+          generator.writeEndArray();
+        }
+      } catch (UncheckedIOException e) {
+        LOG.debug("Export of horses aborted: {}", e.getCause().getMessage());
+        throw e.getCause();
+      }
+    };
+    return ResponseEntity.ok()
+        .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+        .body(body);
+  }
+
+  /**
+   * Counts the horses matching the given search parameters by sex, by decade of birth and by owner.
+   *
+   * @param searchParameters the parameters to filter the counted horses, all horses are counted without any
+   * @return the number of matching horses by sex, decade of birth and owner
+   */
+  @GetMapping("/facets")
+  public HorseFacetsDto getFacets(HorseSearchDto searchParameters) {
+    LOG.info("GET " + BASE_PATH + "/facets");
+    LOG.debug("request parameters: {}", searchParameters);
+    return service.getFacets(searchParameters);
+  }
+
+  /**
+   * Retrieves the statistics of the cache of horse search results.
+   *
+   * @return the hit ratio and estimated memory of the cache, among others
+   */
+  @GetMapping("/search-cache")
+  public SearchCacheStatsDto getSearchCacheStats() {
+    LOG.info("GET " + BASE_PATH + "/search-cache");
+    return service.getSearchCacheStats();
   }
 
   /**
@@ -78,6 +227,27 @@ public class HorseEndpoint {
     }
   }
 
+  /**
+   * Retrieves the requested fields of a horse by its ID.
+   * Only these fields are loaded from the database, the owner and the parents are only looked up if they are requested.
+   *
+   * @param id the unique identifier of the horse
+   * @param fields the comma-separated names of the fields to return, the ID is always returned
+   * @return the requested fields of the horse
+   * @throws ResponseStatusException if the horse is not found or a field is unknown
+   */
+  @GetMapping(path = "{id}", params = FIELDS_PARAM)
+  public Map<String, Object> getFieldsById(@PathVariable("id") long id, @RequestParam(FIELDS_PARAM) String fields) {
+    LOG.info("GET " + BASE_PATH + "/{}?" + FIELDS_PARAM + "={}", id, fields);
+    try {
+      return service.getById(id, fieldsOf(fields));
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to get fields of not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
   /**
    * Retrieves the family tree of a horse by its ID.
    *
@@ -103,16 +273,124 @@ public class HorseEndpoint {
     }
   }
 
+  /**
+   * Retrieves the descendants of a horse as a flat list.
+   *
+   * @param id the ID of the horse whose descendants to retrieve
+   * @param maxGenerations the maximum number of generations to include (optional, default 5)
+   * @param filter the criteria the returned descendants have to match
+   * @return a stream of the matching descendants, ordered by generation and ID
+   * @throws ResponseStatusException if the horse is not found or validation fails
+   */
+  @GetMapping("{id}/descendants")
+  public Stream<HorseDescendantDto> getDescendants(@PathVariable("id") long id,
+                                                   @RequestParam(defaultValue = "5") int maxGenerations,
+                                                   HorseDescendantSearchDto filter) {
+    LOG.info("GET " + BASE_PATH + "/{}/descendants?maxGenerations={}", id, maxGenerations);
+    LOG.debug("request parameters: {}", filter);
+    try {
+      return service.getDescendants(id, maxGenerations, filter);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to get descendants of not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Invalid parameters for descendants request", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Finds out how two horses are related.
+   *
+   * @param id the ID of the first horse
+   * @param otherId the ID of the second horse
+   * @param maxGenerations the maximum number of generations to search on each side (optional, default 10)
+   * @return the relationship of the first horse to the second one, with their closest common ancestors
+   * @throws ResponseStatusException if one of the horses is not found or validation fails
+   */
+  @GetMapping("{id}/relationship/{otherId}")
+  public HorseRelationshipDto getRelationship(@PathVariable("id") long id,
+                                              @PathVariable("otherId") long otherId,
+                                              @RequestParam(defaultValue = "10") int maxGenerations) {
+    LOG.info("GET " + BASE_PATH + "/{}/relationship/{}?maxGenerations={}", id, otherId, maxGenerations);
+    try {
+      return service.getRelationship(id, otherId, maxGenerations);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to get relationship of not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Invalid parameters for relationship request", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Computes Wright's coefficient of inbreeding of a horse.
+   *
+   * @param id the ID of the horse
+   * @param generations the number of generations of ancestors to take into account (optional, default 10)
+   * @return the coefficient of inbreeding of the requested horse
+   * @throws ResponseStatusException if the horse is not found or validation fails
+   */
+  @GetMapping("{id}/inbreeding")
+  public HorseInbreedingDto getInbreeding(@PathVariable("id") long id,
+                                          @RequestParam(defaultValue = "10") int generations) {
+    LOG.info("GET " + BASE_PATH + "/{}/inbreeding?generations={}", id, generations);
+    try {
+      return inbreedingService.getInbreeding(id, generations);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to compute inbreeding of not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Invalid parameters for inbreeding request", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
   /**
    * Searches for potential parent horses based on name.
+   * Only horses, that are valid parents for the child described by the filter, are returned.
    *
    * @param name the name to search for (partial match)
+   * @param filter the child and the other parent restricting the candidates
    * @return a stream of up to 5 horses matching the name search
+   * @throws ResponseStatusException if the child is not found
    */
   @GetMapping("/parents")
-  public Stream<HorseListDto> searchParents(@RequestParam String name) {
+  public Stream<HorseListDto> searchParents(@RequestParam String name, HorseParentSearchDto filter) {
+    return parents(name, filter);
+  }
+
+  /**
+   * Searches for potential parent horses based on name, like {@link #searchParents(String, HorseParentSearchDto)},
+   * but returns the owners side-loaded, so every owner is sent only once instead of with each of its horses.
+   *
+   * @param name the name to search for (partial match)
+   * @param filter the child and the other parent restricting the candidates
+   * @return up to 5 horses matching the name search, referring to their owners by ID, and their owners
+   * @throws ResponseStatusException if the child is not found
+   */
+  @GetMapping(path = "/parents", params = SIDELOAD_OWNERS_PARAM + "=true")
+  public HorseListWithOwnersDto searchParentsWithOwners(@RequestParam String name, HorseParentSearchDto filter) {
+    return service.sideloadOwners(parents(name, filter).toList());
+  }
+
+  private Stream<HorseListDto> parents(String name, HorseParentSearchDto filter) {
     LOG.info("GET " + BASE_PATH + "/parents?name={}", name);
-    return service.searchParents(name);
+    LOG.debug("request parameters: {}", filter);
+    try {
+      return service.searchParents(name, filter);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Child to search parents for not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
   }
 
   /**
@@ -135,6 +413,27 @@ public class HorseEndpoint {
     );
   }
 
+  /**
+   * Creates a batch of new horse entries in the system, all or none of them.
+   * Horses of the batch can be parents of other horses of the batch, referenced by their temporary ID.
+   *
+   * @param toCreate the horse data to be created
+   * @return the created horse details, in the order of {@code toCreate}
+   * @throws ValidationException if the input data is invalid
+   * @throws ConflictException if a conflict occurs while creating the horses
+   */
+  @PostMapping("/batch")
+  @ResponseStatus(HttpStatus.CREATED)
+  public List<HorseDetailDto> createAll(
+      @RequestBody List<HorseBatchCreateDto> toCreate
+  ) throws ValidationException, ConflictException {
+    LOG.info("POST " + BASE_PATH + "/batch");
+    LOG.debug("Request body: {} horses", toCreate.size());
+    return service.createAll(
+        toCreate
+    );
+  }
+
   /**
    * Updates an existing horse entry in the system.
    *
@@ -174,6 +473,21 @@ public class HorseEndpoint {
     service.delete(id);
   }
 
+  /**
+   * Parses the requested fields of horses.
+   *
+   * @throws ResponseStatusException if a field is unknown
+   */
+  private Set<HorseField> fieldsOf(String fields) {
+    try {
+      return HorseField.parse(fields);
+    } catch (IllegalArgumentException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Unknown fields of horses requested", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
   /**
    * Logs client-side errors with relevant details.
    *
@@ -1,14 +1,28 @@
 package at.ac.tuwien.sepr.assignment.individual.service;
 
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseBatchCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCursor;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseFacetsDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseFamilyTreeDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListWithOwnersDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseParentSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseRelationshipDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.SearchCacheStatsDto;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -18,12 +32,79 @@ public interface HorseService {
   /**
    * Searches for horses based on the given search criteria.
    * If no search criteria are provided, returns all horses.
+   * With a full-text query, the horses are ranked by the relevance of their description instead of ordered by ID.
+   * Otherwise, with fuzzy matching, they are ranked by the edit distance between their name and the searched name.
+   * Texts are searched for case-insensitively and without surrounding whitespace.
    *
    * @param searchParameters the search criteria to filter horses
    * @return stream of horses matching the search criteria
    */
   Stream<HorseListDto> searchHorses(HorseSearchDto searchParameters);
 
+  /**
+   * Searches for horses based on the given search criteria, like {@link #searchHorses(HorseSearchDto)},
+   * but only loads the given fields of them.
+   * Fields that are not requested are null, and owners are only looked up if they are requested.
+   *
+   * @param searchParameters the search criteria to filter horses
+   * @param fields the fields to load, null for all fields
+   * @return stream of horses matching the search criteria
+   */
+  Stream<HorseListDto> searchHorses(HorseSearchDto searchParameters, Set<HorseField> fields);
+
+  /**
+   * Reduces horses to the given fields.
+   *
+   * @param horses the horses, as returned by a search for these fields
+   * @param fields the fields to keep
+   * @return the values of the fields of every horse by the name of the field
+   */
+  List<Map<String, Object>> selectFields(List<HorseListDto> horses, Set<HorseField> fields);
+
+  /**
+   * Gets the cursor of the page following a page of horses returned by {@link #searchHorses(HorseSearchDto)}.
+   * Only limited searches that are not ranked have further pages, and only if the page is full.
+   *
+   * @param searchParameters the search criteria the page was returned for
+   * @param page the horses of the page
+   * @return the cursor to pass with the same search criteria to get the next page, or null if there is no next page
+   */
+  HorseCursor nextCursor(HorseSearchDto searchParameters, List<HorseListDto> page);
+
+  /**
+   * Converts a list of horses into a list, that refers to the owners by ID and contains every owner only once,
+   * so owners of many horses in the list are not repeated for every horse.
+   *
+   * @param horses the horses, as returned by a search
+   * @return the horses with their side-loaded owners
+   */
+  HorseListWithOwnersDto sideloadOwners(List<HorseListDto> horses);
+
+  /**
+   * Passes all horses one by one to the given action, ordered by ID.
+   * Horses are read from the persistent data store while they are passed on, so memory use does not grow with the number of horses.
+   * If the action throws, the export stops and the exception is passed on.
+   *
+   * @param action the action to perform for every horse
+   */
+  void exportHorses(Consumer<HorseListDto> action);
+
+  /**
+   * Counts the horses matching the given search criteria by sex, by decade of birth and by owner.
+   * Without search criteria, all horses are counted. A limit of the search criteria is ignored.
+   *
+   * @param searchParameters the search criteria to filter horses
+   * @return the number of matching horses by sex, decade of birth and owner
+   */
+  HorseFacetsDto getFacets(HorseSearchDto searchParameters);
+
+  /**
+   * Get the statistics of the cache of search results, that answers repeated searches until the next write.
+   *
+   * @return the current statistics of the cache
+   */
+  SearchCacheStatsDto getSearchCacheStats();
+
   /**
    * Creates a horse with the data given in {@code horse}
    * in the persistent data store.
@@ -37,6 +118,20 @@ public interface HorseService {
       HorseCreateDto horse
   ) throws ValidationException, ConflictException;
 
+  /**
+   * Creates a batch of horses with the data given in {@code horses}
+   * in the persistent data store, all or none of them.
+   * Horses of the batch can be parents of other horses of the batch, referenced by their temporary ID.
+   *
+   * @param horses the horses to create
+   * @return the created horses, in the order of {@code horses}
+   * @throws ValidationException if the horses could not be created because the data given is in itself incorrect (no name, parent not in batch, …)
+   * @throws ConflictException if the data given for the horses is in conflict the data currently in the system (owner does not exist, …)
+   */
+  List<HorseDetailDto> createAll(
+      List<HorseBatchCreateDto> horses
+  ) throws ValidationException, ConflictException;
+
   /**
    * Get the horse with given ID, with more detail information.
    * This includes the owner of the horse, and its parents.
@@ -48,6 +143,17 @@ public interface HorseService {
    */
   HorseDetailDto getById(long id) throws NotFoundException;
 
+  /**
+   * Get only the given fields of the horse with given ID.
+   * Only the requested fields are loaded, the owner and the parents are not looked up unless they are requested.
+   *
+   * @param id the ID of the horse to get
+   * @param fields the fields to get
+   * @return the values of the fields by the name of the field
+   * @throws NotFoundException if the horse with the given ID does not exist in the persistent data store
+   */
+  Map<String, Object> getById(long id, Set<HorseField> fields) throws NotFoundException;
+
   /**
    * Get the family tree for a horse with the given ID.
    * This includes the horse and all its ancestors up to the specified maximum generations.
@@ -60,6 +166,33 @@ public interface HorseService {
    */
   HorseFamilyTreeDto getFamilyTree(long id, int maxGenerations) throws NotFoundException, ValidationException;
 
+  /**
+   * Get the descendants of a horse with the given ID, up to the specified maximum generations.
+   * The children of the horse are the first generation.
+   *
+   * @param id the ID of the horse to get the descendants of
+   * @param maxGenerations the maximum number of generations to include (1-10)
+   * @param filter the criteria the returned descendants have to match
+   * @return the matching descendants ordered by generation and ID
+   * @throws NotFoundException if the horse with the given ID does not exist in the persistent data store
+   * @throws ValidationException if maxGenerations is not between 1 and 10
+   */
+  Stream<HorseDescendantDto> getDescendants(long id, int maxGenerations, HorseDescendantSearchDto filter)
+      throws NotFoundException, ValidationException;
+
+  /**
+   * Find out how two horses are related, by searching for their closest common ancestors.
+   * Closest are the common ancestors with the fewest generations between them and both horses combined.
+   *
+   * @param firstId the ID of the first horse
+   * @param secondId the ID of the second horse
+   * @param maxGenerations the maximum number of generations to search on each side (1-10)
+   * @return the relationship of the first horse to the second one
+   * @throws NotFoundException if one of the horses does not exist in the persistent data store
+   * @throws ValidationException if maxGenerations is not between 1 and 10
+   */
+  HorseRelationshipDto getRelationship(long firstId, long secondId, int maxGenerations) throws NotFoundException, ValidationException;
+
   /**
    * Updates a horse with the data given in {@code horse}
    * in the persistent data store.
@@ -77,11 +210,17 @@ public interface HorseService {
   /**
    * Searches for potential parent horses based on name, limiting results to 5 candidates.
    * Used for parent selection when creating or updating horses.
+   * Horses whose name starts with the search term come first, then horses with a further word of the name starting with it,
+   * then horses whose name contains it anywhere, and with fuzzy matching finally horses whose name is similar to it.
+   * Horses that would be rejected as parents of the child described by the filter are left out,
+   * i.e. the child itself, its descendants, horses not born before it, horses of the wrong sex and excluded horses.
    *
    * @param name the name to search for (partial match, case-insensitive)
-   * @return stream of up to 5 horses matching the name search
+   * @param filter the child and the other parent restricting the candidates
+   * @return stream of up to 5 horses matching the name search, best matches first
+   * @throws NotFoundException if the child with the given ID is needed for its date of birth, but does not exist
    */
-  Stream<HorseListDto> searchParents(String name);
+  Stream<HorseListDto> searchParents(String name, HorseParentSearchDto filter) throws NotFoundException;
 
   /**
    * Deletes the horse with the given ID from the persistent data store.
@@ -0,0 +1,24 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseInbreedingDto;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+
+/**
+ * Service for computing the inbreeding of horses from their pedigree.
+ */
+public interface InbreedingService {
+
+  /**
+   * Compute Wright's coefficient of inbreeding for the horse with the given ID.
+   * Only ancestors within the given number of generations are taken into account,
+   * horses further back are treated as unrelated founders.
+   *
+   * @param id the ID of the horse
+   * @param generations the number of generations of ancestors to take into account (1-30)
+   * @return the coefficient of inbreeding of the horse
+   * @throws NotFoundException if the horse with the given ID does not exist in the persistent data store
+   * @throws ValidationException if generations is not between 1 and 30
+   */
+  HorseInbreedingDto getInbreeding(long id, int generations) throws NotFoundException, ValidationException;
+}
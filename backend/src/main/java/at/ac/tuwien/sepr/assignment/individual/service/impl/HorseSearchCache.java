@@ -0,0 +1,185 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.SearchCacheStatsDto;
+import at.ac.tuwien.sepr.assignment.individual.index.TrigramIndex;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Size-bounded cache of the results of horse searches by their normalized search parameters and loaded fields,
+ * evicting the least recently used results once it is full, and expiring results after a fixed time to live.
+ * The cache is full once it holds too many results or its results take up too much estimated memory.
+ * Results too large for the cache, such as unlimited searches matching most horses, are not cached at all.
+ *
+ * <p>
+ * Services have to invalidate the cache after every write that may change the result of a search.
+ * Every invalidation increases the generation of the cache and drops all results:
+ * a result computed before a write finished is only put into the cache, if the generation did not change in the meantime,
+ * so no search ever returns data older than the last write.
+ * </p>
+ */
+@Component
+public class HorseSearchCache {
+  // Maximum number of search results kept in the cache
+  private static final int MAX_SIZE = 1_000;
+  // Maximum estimated memory taken by all search results, and by a single search result
+  private static final long MAX_BYTES = 64L * 1024 * 1024;
+  private static final long MAX_RESULT_BYTES = 1024L * 1024;
+  private static final long TIME_TO_LIVE_NANOS = Duration.ofMinutes(1).toNanos();
+
+  // Ordered from the least to the most recently used result
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long generation;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long estimatedBytes;
+
+  private record Key(HorseSearchDto searchParameters, Set<HorseField> fields) {
+  }
+
+  private record Entry(List<HorseListDto> horses, long createdAt, long estimatedBytes) {
+  }
+
+  /**
+   * Normalizes search parameters, so all search parameters with the same result are equal.
+   * Texts are stripped and case-folded, blank texts, non-positive limits and a disabled fuzzy matching become null,
+   * the owner IDs become sorted and distinct, and the default order by ID becomes null.
+   *
+   * @param searchParameters the search parameters
+   * @return the normalized search parameters
+   */
+  public static HorseSearchDto normalize(HorseSearchDto searchParameters) {
+    var ownerIds = searchParameters.ownerIds() == null || searchParameters.ownerIds().isEmpty()
+        ? null
+        : searchParameters.ownerIds().stream().distinct().sorted().toList();
+    var cursor = searchParameters.cursor();
+    return new HorseSearchDto(
+        normalize(searchParameters.name()),
+        normalize(searchParameters.description()),
+        searchParameters.bornBefore(),
+        searchParameters.sex(),
+        normalize(searchParameters.ownerName()),
+        searchParameters.limit() != null && searchParameters.limit() > 0 ? searchParameters.limit() : null,
+        normalize(searchParameters.query()),
+        Boolean.TRUE.equals(searchParameters.fuzzy()) ? Boolean.TRUE : null,
+        ownerIds,
+        searchParameters.birthYearFrom(),
+        searchParameters.birthYearTo(),
+        searchParameters.bornAfter(),
+        // The cursor determines the order, and an order by ID is the default
+        cursor != null || searchParameters.sort() == HorseSort.ID ? null : searchParameters.sort(),
+        cursor);
+  }
+
+  private static String normalize(String text) {
+    return text == null || text.isBlank() ? null : TrigramIndex.fold(text.strip());
+  }
+
+  /**
+   * Get the result of a search from the cache, or run the search and cache its result.
+   *
+   * @param searchParameters the normalized search parameters
+   * @param fields the fields loaded by the search, null for all fields
+   * @param search the search to run if the result is not cached
+   * @return the result of the search
+   */
+  public List<HorseListDto> get(HorseSearchDto searchParameters, Set<HorseField> fields, Supplier<List<HorseListDto>> search) {
+    var key = new Key(searchParameters, fields);
+    long searchedAtGeneration;
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null && System.nanoTime() - entry.createdAt() < TIME_TO_LIVE_NANOS) {
+        hits++;
+        return entry.horses();
+      }
+      if (entry != null) {
+        entries.remove(key);
+        estimatedBytes -= entry.estimatedBytes();
+      }
+      misses++;
+      searchedAtGeneration = generation;
+    }
+
+    // Searches run outside the lock, so searches for different parameters do not wait for each other
+    var horses = List.copyOf(search.get());
+    var entry = new Entry(horses, System.nanoTime(), estimateBytes(searchParameters, horses));
+    if (entry.estimatedBytes() > MAX_RESULT_BYTES) {
+      return horses;
+    }
+    synchronized (this) {
+      if (searchedAtGeneration == generation) {
+        Entry previous = entries.put(key, entry);
+        estimatedBytes += entry.estimatedBytes() - (previous != null ? previous.estimatedBytes() : 0);
+        evict();
+      }
+    }
+    return horses;
+  }
+
+  /**
+   * Remove the least recently used results, until the cache is within its size and memory bounds.
+   * Has to be called while holding the lock.
+   */
+  private void evict() {
+    var iterator = entries.values().iterator();
+    while (entries.size() > MAX_SIZE || estimatedBytes > MAX_BYTES) {
+      estimatedBytes -= iterator.next().estimatedBytes();
+      iterator.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * Remove all results from the cache, because horses or owners have been changed.
+   */
+  public synchronized void invalidate() {
+    generation++;
+    entries.clear();
+    estimatedBytes = 0;
+  }
+
+  /**
+   * Get the statistics of the cache.
+   *
+   * @return the current statistics
+   */
+  public synchronized SearchCacheStatsDto stats() {
+    long lookups = hits + misses;
+    return new SearchCacheStatsDto(hits, misses, lookups > 0 ? (double) hits / lookups : 0, evictions, entries.size(), estimatedBytes,
+        generation);
+  }
+
+  /**
+   * Estimates the memory taken by a cached result, counting the objects and the characters of the texts, but not shared objects.
+   */
+  private static long estimateBytes(HorseSearchDto searchParameters, List<HorseListDto> horses) {
+    // Map entry, cache entry, search parameters and list
+    long bytes = 200 + 8L * horses.size()
+        + textBytes(searchParameters.name()) + textBytes(searchParameters.description())
+        + textBytes(searchParameters.ownerName()) + textBytes(searchParameters.query());
+    for (var horse : horses) {
+      // Horse, its ID and its date of birth
+      bytes += 80 + textBytes(horse.name()) + textBytes(horse.description());
+      OwnerDto owner = horse.owner();
+      if (owner != null) {
+        bytes += 48 + textBytes(owner.firstName()) + textBytes(owner.lastName()) + textBytes(owner.email());
+      }
+    }
+    return bytes;
+  }
+
+  private static long textBytes(String text) {
+    return text == null ? 0 : 40 + text.length();
+  }
+}
@@ -0,0 +1,393 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseFacetsDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.index.BitmapIndex;
+import at.ac.tuwien.sepr.assignment.individual.index.Bm25Index;
+import at.ac.tuwien.sepr.assignment.individual.index.FacetCounts;
+import at.ac.tuwien.sepr.assignment.individual.index.FuzzyIndex;
+import at.ac.tuwien.sepr.assignment.individual.index.OrdinalBitmap;
+import at.ac.tuwien.sepr.assignment.individual.index.Ordinals;
+import at.ac.tuwien.sepr.assignment.individual.index.RangeIndex;
+import at.ac.tuwien.sepr.assignment.individual.index.PrefixIndex;
+import at.ac.tuwien.sepr.assignment.individual.index.TrigramIndex;
+import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indexes over the names, descriptions and low-cardinality attributes of all horses, narrowing substring searches down to candidate horses.
+ * It is loaded once at startup and has to be kept up to date by every operation changing horses.
+ * The candidates are a superset of the matching horses, the search in the persistent data store has the final say.
+ * Names are additionally indexed by their prefixes and the prefixes of their words, to complete names directly,
+ * and by their padded trigrams, to find names despite typos.
+ * Descriptions are additionally indexed by their words, to rank horses by the relevance of their description for a full-text query.
+ * Sex, owner and year of birth are indexed by bitmaps over dense ordinals of the horses,
+ * so these filters are intersected before any text is matched.
+ * Exact dates of birth are indexed by their epoch days in sorted order, so the horses born within a range of days are found by binary search.
+ * The number of all horses by sex, decade of birth and owner is counted as horses are put and removed.
+ */
+@Component
+public class HorseSearchIndex implements SmartInitializingSingleton {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  // Maximum number of candidates passed on to the persistent data store, i.e. at most ten queries with a thousand IDs each
+  private static final int MAX_CANDIDATES = 10_000;
+  // Maximum number of candidates for a search ordered by name, i.e. a single query, as names are not held in the index
+  private static final int MAX_NAME_ORDERED_CANDIDATES = 1_000;
+
+  private final HorseDao dao;
+  private final TrigramIndex names = new TrigramIndex();
+  private final PrefixIndex namePrefixes = new PrefixIndex();
+  private final FuzzyIndex fuzzyNames = new FuzzyIndex();
+  private final TrigramIndex descriptions = new TrigramIndex();
+  private final Bm25Index descriptionTerms = new Bm25Index();
+  // The bitmap indexes are not thread-safe themselves, they are guarded by the lock
+  private final Ordinals ordinals = new Ordinals();
+  private final BitmapIndex<Sex> sexes = new BitmapIndex<>();
+  private final BitmapIndex<Long> owners = new BitmapIndex<>();
+  private final BitmapIndex<Integer> birthYears = new BitmapIndex<>();
+  private final RangeIndex birthDays = new RangeIndex();
+  // Counts of all horses, changed by every put and remove
+  private final FacetCounts<Sex> sexCounts = new FacetCounts<>();
+  private final FacetCounts<Integer> decadeCounts = new FacetCounts<>();
+  private final FacetCounts<Long> ownerCounts = new FacetCounts<>();
+  private long total;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  public HorseSearchIndex(HorseDao dao) {
+    this.dao = dao;
+  }
+
+  /**
+   * Loads all horses from the persistent data store, after all beans have been created.
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    var horses = dao.getAll();
+    for (var horse : horses) {
+      put(horse);
+    }
+    LOG.info("Loaded search index with {} horses", horses.size());
+  }
+
+  /**
+   * Add a horse to the index, replacing its previously indexed data.
+   *
+   * @param horse the created or updated horse
+   */
+  public void put(Horse horse) {
+    names.put(horse.id(), horse.name());
+    namePrefixes.put(horse.id(), horse.name());
+    fuzzyNames.put(horse.id(), horse.name());
+    descriptions.put(horse.id(), horse.description());
+    descriptionTerms.put(horse.id(), horse.description());
+    lock.writeLock().lock();
+    try {
+      int ordinal = ordinals.add(horse.id());
+      count(ordinal, -1);
+      sexes.put(ordinal, horse.sex());
+      owners.put(ordinal, horse.ownerId());
+      birthYears.put(ordinal, horse.dateOfBirth().getYear());
+      birthDays.put(ordinal, horse.dateOfBirth().toEpochDay());
+      count(ordinal, 1);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove a horse from the index.
+   *
+   * @param horseId the ID of the deleted horse
+   */
+  public void remove(long horseId) {
+    names.remove(horseId);
+    namePrefixes.remove(horseId);
+    fuzzyNames.remove(horseId);
+    descriptions.remove(horseId);
+    descriptionTerms.remove(horseId);
+    lock.writeLock().lock();
+    try {
+      int ordinal = ordinals.remove(horseId);
+      if (ordinal >= 0) {
+        count(ordinal, -1);
+        sexes.remove(ordinal);
+        owners.remove(ordinal);
+        birthYears.remove(ordinal);
+        birthDays.remove(ordinal);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Get the candidates for horses matching the search parameters.
+   * The bitmaps of sex, owners, years of birth and the range of days of birth are intersected first,
+   * the result is then narrowed down by the trigrams of the name and the description.
+   * Candidates only pay off while they are few, every thousand of them costs the persistent data store another query.
+   * So filters leaving more than {@value #MAX_CANDIDATES} horses are left to the persistent data store,
+   * which applies all search parameters itself.
+   * Candidates preceding the cursor are dropped, so later pages do not query them again.
+   * Names are not held in the index, so searches ordered by name
+   * are left to the keyset query of the persistent data store if they have more than {@value #MAX_NAME_ORDERED_CANDIDATES} candidates.
+   *
+   * @param searchParameters the search parameters
+   * @param ownerIds the IDs of the owners, one of which the horses must have, null to not filter by owner
+   * @return the IDs of the candidate horses in ascending order,
+   *     or null if the search parameters cannot narrow down the horses enough
+   */
+  public List<Long> candidates(HorseSearchDto searchParameters, Collection<Long> ownerIds) {
+    long[] filteredIds = null;
+    lock.readLock().lock();
+    try {
+      OrdinalBitmap filtered = filter(searchParameters, ownerIds);
+      if (filtered != null && filtered.cardinality() <= MAX_CANDIDATES) {
+        filteredIds = ordinals.ids(filtered.toArray());
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    long[] textCandidates = textCandidates(searchParameters.name(), searchParameters.description());
+    long[] candidates;
+    if (filteredIds == null) {
+      candidates = textCandidates;
+    } else if (textCandidates == null) {
+      candidates = filteredIds;
+    } else {
+      long[] ids = filteredIds;
+      candidates = Arrays.stream(textCandidates).filter(id -> Arrays.binarySearch(ids, id) >= 0).toArray();
+    }
+    return boxed(candidates == null ? null : afterCursor(candidates, searchParameters));
+  }
+
+  /**
+   * Drop the candidates preceding the cursor of the search parameters, or all of them if they cannot be pruned by the cursor.
+   *
+   * @param candidates the IDs of the candidate horses in ascending order
+   * @param searchParameters the search parameters
+   * @return the IDs of the candidate horses following the cursor in ascending order, or null to not narrow down the horses
+   */
+  private long[] afterCursor(long[] candidates, HorseSearchDto searchParameters) {
+    var cursor = searchParameters.cursor();
+    var sort = cursor != null ? cursor.sort() : searchParameters.sort();
+    if (sort == HorseSort.NAME) {
+      return candidates.length > MAX_NAME_ORDERED_CANDIDATES ? null : candidates;
+    }
+    if (cursor == null) {
+      return candidates;
+    }
+    if (sort == HorseSort.DATE_OF_BIRTH) {
+      long day = cursor.dateOfBirth().toEpochDay();
+      lock.readLock().lock();
+      try {
+        return Arrays.stream(candidates).filter(id -> {
+          int ordinal = ordinals.get(id);
+          Long key = ordinal < 0 ? null : birthDays.get(ordinal);
+          // Horses missing from the index are kept, the persistent data store has the final say
+          return key == null || key > day || key == day && id > cursor.id();
+        }).toArray();
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+    int from = Arrays.binarySearch(candidates, cursor.id() + 1);
+    return Arrays.copyOfRange(candidates, from < 0 ? -from - 1 : from, candidates.length);
+  }
+
+  /**
+   * Get the ordinals of the horses matching the sex, owners and dates of birth of the search parameters.
+   * Has to be called while holding the lock.
+   *
+   * @return the bitmap of the matching ordinals, or null if the search parameters filter by none of them
+   */
+  private OrdinalBitmap filter(HorseSearchDto searchParameters, Collection<Long> ownerIds) {
+    OrdinalBitmap filtered = null;
+    if (searchParameters.sex() != null) {
+      filtered = sexes.anyOf(List.of(searchParameters.sex()));
+    }
+    if (ownerIds != null) {
+      filtered = intersect(filtered, owners.anyOf(ownerIds));
+    }
+    // Ranges of years are unions of few precomputed bitmaps, exact dates are looked up in the sorted days
+    if (searchParameters.birthYearFrom() != null || searchParameters.birthYearTo() != null) {
+      filtered = intersect(filtered, birthYears.range(searchParameters.birthYearFrom(), searchParameters.birthYearTo()));
+    }
+    if (searchParameters.bornAfter() != null || searchParameters.bornBefore() != null) {
+      long from = searchParameters.bornAfter() != null ? searchParameters.bornAfter().toEpochDay() + 1 : Long.MIN_VALUE;
+      long until = searchParameters.bornBefore() != null ? searchParameters.bornBefore().toEpochDay() : Long.MAX_VALUE;
+      filtered = intersect(filtered, birthDays.between(from, until));
+    }
+    return filtered;
+  }
+
+  private static OrdinalBitmap intersect(OrdinalBitmap filtered, OrdinalBitmap bitmap) {
+    return filtered == null ? bitmap : filtered.and(bitmap);
+  }
+
+  /**
+   * Get the facets of all horses from the counters kept up to date by every change.
+   *
+   * @return the number of horses by sex, decade of birth and owner
+   */
+  public HorseFacetsDto facets() {
+    lock.readLock().lock();
+    try {
+      return facetsOf(total, sexCounts, decadeCounts, ownerCounts);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Get the facets of the horses matching the sex, owners and dates of birth of the search parameters,
+   * counted in a single pass over the matching ordinals.
+   * Filters by name, description and full-text query are not applied, callers have to count the matching horses themselves instead.
+   *
+   * @param searchParameters the search parameters
+   * @param ownerIds the IDs of the owners, one of which the horses must have, null to not filter by owner
+   * @return the number of matching horses by sex, decade of birth and owner
+   */
+  public HorseFacetsDto facets(HorseSearchDto searchParameters, Collection<Long> ownerIds) {
+    lock.readLock().lock();
+    try {
+      OrdinalBitmap filtered = filter(searchParameters, ownerIds);
+      if (filtered == null) {
+        return facetsOf(total, sexCounts, decadeCounts, ownerCounts);
+      }
+      FacetCounts<Sex> bySex = new FacetCounts<>();
+      FacetCounts<Integer> byDecade = new FacetCounts<>();
+      FacetCounts<Long> byOwner = new FacetCounts<>();
+      int[] matching = filtered.toArray();
+      for (int ordinal : matching) {
+        bySex.add(sexes.get(ordinal), 1);
+        byDecade.add(decadeOf(birthYears.get(ordinal)), 1);
+        byOwner.add(owners.get(ordinal), 1);
+      }
+      return facetsOf(matching.length, bySex, byDecade, byOwner);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Count the facets of the given horses in a single pass.
+   *
+   * @param horses the horses
+   * @return the number of the horses by sex, decade of birth and owner
+   */
+  public static HorseFacetsDto facetsOf(Collection<Horse> horses) {
+    FacetCounts<Sex> bySex = new FacetCounts<>();
+    FacetCounts<Integer> byDecade = new FacetCounts<>();
+    FacetCounts<Long> byOwner = new FacetCounts<>();
+    for (var horse : horses) {
+      bySex.add(horse.sex(), 1);
+      byDecade.add(decadeOf(horse.dateOfBirth().getYear()), 1);
+      byOwner.add(horse.ownerId(), 1);
+    }
+    return facetsOf(horses.size(), bySex, byDecade, byOwner);
+  }
+
+  private static HorseFacetsDto facetsOf(long total, FacetCounts<Sex> bySex, FacetCounts<Integer> byDecade, FacetCounts<Long> byOwner) {
+    var owned = byOwner.toMap();
+    long withOwner = owned.values().stream().mapToLong(Long::longValue).sum();
+    return new HorseFacetsDto(total, bySex.toMap(), byDecade.toMap(), owned, total - withOwner);
+  }
+
+  /**
+   * Adds the current values of an ordinal to the counters, or subtracts them for a negative delta.
+   * Has to be called while holding the write lock.
+   */
+  private void count(int ordinal, int delta) {
+    Sex sex = sexes.get(ordinal);
+    if (sex == null) {
+      // Not indexed yet
+      return;
+    }
+    total += delta;
+    sexCounts.add(sex, delta);
+    decadeCounts.add(decadeOf(birthYears.get(ordinal)), delta);
+    ownerCounts.add(owners.get(ordinal), delta);
+  }
+
+  private static Integer decadeOf(Integer year) {
+    return year == null ? null : Math.floorDiv(year, 10) * 10;
+  }
+
+  /**
+   * Get the candidates for horses whose name and description contain the given substrings.
+   *
+   * @param name the substring of the name to search for, may be null
+   * @param description the substring of the description to search for, may be null
+   * @return the IDs of the candidate horses in ascending order,
+   *     or null if neither substring is long enough to narrow down the horses to at most {@value #MAX_CANDIDATES}
+   */
+  public List<Long> candidates(String name, String description) {
+    return boxed(textCandidates(name, description));
+  }
+
+  private long[] textCandidates(String name, String description) {
+    long[] candidates = null;
+    if (TrigramIndex.canNarrow(name)) {
+      candidates = names.candidates(name);
+    }
+    if (TrigramIndex.canNarrow(description)) {
+      long[] descriptionCandidates = descriptions.candidates(description);
+      candidates = candidates == null
+          ? descriptionCandidates
+          : Arrays.stream(candidates).filter(id -> Arrays.binarySearch(descriptionCandidates, id) >= 0).toArray();
+    }
+    return candidates;
+  }
+
+  private static List<Long> boxed(long[] candidates) {
+    return candidates == null || candidates.length > MAX_CANDIDATES ? null : Arrays.stream(candidates).boxed().toList();
+  }
+
+  /**
+   * Get the horses whose description is most relevant for a full-text query.
+   *
+   * @param query the words to search for
+   * @param limit the maximum number of horses to return
+   * @return the hits for up to {@code limit} horses, from the most to the least relevant
+   */
+  public List<Bm25Index.Hit> rank(String query, int limit) {
+    return descriptionTerms.top(query, limit);
+  }
+
+  /**
+   * Get the horses whose name completes a prefix.
+   * Names starting with the prefix rank before names with a further word starting with it,
+   * within each group ordered character by character from the matching word on, a name ranking before the names it is a prefix of.
+   *
+   * @param prefix the case-insensitive prefix of the name
+   * @param limit the maximum number of horses to return
+   * @return the IDs of up to {@code limit} horses, from the best to the worst completion
+   */
+  public List<Long> completions(String prefix, int limit) {
+    return namePrefixes.complete(prefix, limit);
+  }
+
+  /**
+   * Get the horses whose name is similar to the given name, i.e. within an edit distance depending on its length.
+   *
+   * @param name the name, possibly misspelled
+   * @return the similar names, by ascending edit distance and then by ascending ID
+   * @see FuzzyIndex#defaultMaxDistance(String)
+   */
+  public List<FuzzyIndex.Match> similarNames(String name) {
+    return fuzzyNames.search(name, FuzzyIndex.defaultMaxDistance(name));
+  }
+}
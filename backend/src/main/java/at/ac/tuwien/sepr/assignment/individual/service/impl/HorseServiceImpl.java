@@ -1,38 +1,64 @@
 package at.ac.tuwien.sepr.assignment.individual.service.impl;
 
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCommonAncestorDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseBatchCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCursor;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseFacetsDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseFamilyTreeDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListWithOwnersDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseParentSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseRelationshipDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.ParentDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.SearchCacheStatsDto;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.index.Bm25Index;
+import at.ac.tuwien.sepr.assignment.individual.index.FuzzyIndex;
 import at.ac.tuwien.sepr.assignment.individual.mapper.HorseMapper;
+import at.ac.tuwien.sepr.assignment.individual.mapper.OwnerMapper;
 import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
 import at.ac.tuwien.sepr.assignment.individual.persistence.ParentDao;
 import at.ac.tuwien.sepr.assignment.individual.service.HorseService;
 import at.ac.tuwien.sepr.assignment.individual.service.OwnerService;
 import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Implementation of {@link HorseService} for handling image storage and retrieval.
@@ -40,109 +66,263 @@ import org.springframework.stereotype.Service;
 @Service
 public class HorseServiceImpl implements HorseService {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  // Maximum number of candidates returned when searching for parents
+  private static final int PARENT_CANDIDATES = 5;
+  private static final String[] ORDINALS = {"first", "second", "third", "fourth", "fifth", "sixth", "seventh", "eighth", "ninth"};
   private final HorseDao dao;
   private final ParentDao parentDao;
   private final HorseMapper mapper;
   private final HorseValidator validator;
   private final OwnerService ownerService;
+  private final OwnerMapper ownerMapper;
+  private final PedigreeGraph pedigreeGraph;
+  private final HorseSearchIndex searchIndex;
+  private final HorseSearchCache searchCache;
 
-
+  /**
+   * Constructs the {@code HorseServiceImpl} with its DAOs and mappers, and the in-memory indexes it keeps in sync.
+   */
   @Autowired
   public HorseServiceImpl(HorseDao dao,
                           ParentDao parentDao,
                           HorseMapper mapper,
                           HorseValidator validator,
-                          OwnerService ownerService) {
+                          OwnerService ownerService,
+                          OwnerMapper ownerMapper,
+                          PedigreeGraph pedigreeGraph,
+                          HorseSearchIndex searchIndex,
+                          HorseSearchCache searchCache) {
     this.dao = dao;
     this.parentDao = parentDao;
     this.mapper = mapper;
     this.validator = validator;
     this.ownerService = ownerService;
+    this.ownerMapper = ownerMapper;
+    this.pedigreeGraph = pedigreeGraph;
+    this.searchIndex = searchIndex;
+    this.searchCache = searchCache;
   }
 
   @Override
   public Stream<HorseListDto> searchHorses(HorseSearchDto searchParameters) {
-    LOG.trace("searchHorses({})", searchParameters);
-    var horses = dao.getAll();
+    return searchHorses(searchParameters, null);
+  }
 
-    // Get all owners first to handle owner name filtering
-    var allOwnerIds = horses.stream()
-        .map(Horse::ownerId)
-        .filter(Objects::nonNull)
-        .collect(Collectors.toUnmodifiableSet());
-    final Map<Long, OwnerDto> allOwnerMap;
-    try {
-      allOwnerMap = !allOwnerIds.isEmpty() ? ownerService.getAllById(allOwnerIds) : Map.of();
-    } catch (NotFoundException e) {
-      throw new FatalException("Horse, that is already persisted, refers to non-existing owner", e);
+  @Override
+  public Stream<HorseListDto> searchHorses(HorseSearchDto searchParameters, Set<HorseField> fields) {
+    LOG.trace("searchHorses({}, {})", searchParameters, fields);
+    var normalized = HorseSearchCache.normalize(searchParameters);
+    return searchCache.get(normalized, fields, () -> search(normalized, fields)).stream();
+  }
+
+  @Override
+  public List<Map<String, Object>> selectFields(List<HorseListDto> horses, Set<HorseField> fields) {
+    LOG.trace("selectFields({}, {})", horses.size(), fields);
+    return horses.stream()
+        .map(horse -> mapper.listDtoToFields(horse, fields))
+        .toList();
+  }
+
+  @Override
+  public HorseCursor nextCursor(HorseSearchDto searchParameters, List<HorseListDto> page) {
+    LOG.trace("nextCursor({}, {})", searchParameters, page.size());
+    var normalized = HorseSearchCache.normalize(searchParameters);
+    if (normalized.limit() == null || page.size() < normalized.limit() || isRanked(normalized)) {
+      return null;
+    }
+    var sort = normalized.cursor() != null ? normalized.cursor().sort() : normalized.sort() != null ? normalized.sort() : HorseSort.ID;
+    return HorseCursor.after(sort, page.get(page.size() - 1));
+  }
+
+  @Override
+  public HorseListWithOwnersDto sideloadOwners(List<HorseListDto> horses) {
+    LOG.trace("sideloadOwners({})", horses.size());
+    return mapper.listDtosToListWithOwners(horses);
+  }
+
+  @Override
+  public void exportHorses(Consumer<HorseListDto> action) {
+    LOG.trace("exportHorses()");
+    // Owners come with the streamed horses, looking them up separately would take a second connection while the first is held
+    dao.forEachWithOwner((horse, owner) -> action.accept(mapper.entityToListDto(horse, ownerMapper.entityToDto(owner))));
+  }
+
+  /**
+   * Whether the horses matching the search parameters are ranked by relevance or similarity, instead of ordered.
+   */
+  private static boolean isRanked(HorseSearchDto searchParameters) {
+    return searchParameters.query() != null
+        || Boolean.TRUE.equals(searchParameters.fuzzy()) && searchParameters.name() != null;
+  }
+
+  @Override
+  public SearchCacheStatsDto getSearchCacheStats() {
+    LOG.trace("getSearchCacheStats()");
+    return searchCache.stats();
+  }
+
+  @Override
+  public HorseFacetsDto getFacets(HorseSearchDto searchParameters) {
+    LOG.trace("getFacets({})", searchParameters);
+    var normalized = HorseSearchCache.normalize(searchParameters);
+    // The limit only restricts listed horses, facets count all matching horses
+    var filter = new HorseSearchDto(normalized.name(), normalized.description(), normalized.bornBefore(), normalized.sex(),
+        normalized.ownerName(), null, normalized.query(), normalized.fuzzy(),
+        normalized.ownerIds(), normalized.birthYearFrom(), normalized.birthYearTo(), normalized.bornAfter(), null, null);
+    if (filter.name() == null && filter.description() == null && filter.query() == null) {
+      // Without text filters, the bitmaps of the search index match exactly
+      return searchIndex.facets(filter, ownerIdsOf(filter));
     }
+    return HorseSearchIndex.facetsOf(matchingHorses(filter, null));
+  }
 
-    // Apply search filters using AND logic and limit
-    final Integer limit = searchParameters.limit();
-    var filteredHorseList = horses.stream()
-        .filter(horse -> matchesSearchCriteria(horse, searchParameters, allOwnerMap))
-        .limit(limit != null && limit > 0 ? limit : Integer.MAX_VALUE)
+  /**
+   * Searches for the horses matching the search parameters, without looking at the cache.
+   *
+   * @param searchParameters the normalized search parameters
+   * @param fields the fields to load, null for all fields
+   * @return the matching horses, without owners if they are not among the fields
+   */
+  private List<HorseListDto> search(HorseSearchDto searchParameters, Set<HorseField> fields) {
+    var horses = matchingHorses(searchParameters, fields);
+    var ownerMap = ownerMapForHorses(horses);
+    return horses.stream()
+        .map(horse -> mapper.entityToListDto(horse, ownerMap))
         .toList();
-    return filteredHorseList.stream()
-        .map(horse -> mapper.entityToListDto(horse, allOwnerMap));
   }
 
   /**
-   * Checks if a horse matches the given search criteria using AND logic.
-   * All non-null criteria must match for the horse to be included.
+   * Searches for the horses matching the search parameters in the persistent data store, narrowed down by the search index.
    *
-   * @param horse the horse to check
-   * @param searchParameters the search criteria
-   * @param ownerMap map of owner IDs to owner DTOs
-   * @return true if the horse matches all criteria, false otherwise
+   * @param searchParameters the normalized search parameters
+   * @param fields the fields to load, null for all fields
+   * @return the matching horses, ranked if the search parameters ask for it, and in the requested order otherwise
    */
-  private boolean matchesSearchCriteria(Horse horse, HorseSearchDto searchParameters, Map<Long, OwnerDto> ownerMap) {
-    // Name filter (case-insensitive partial match)
-    if (searchParameters.name() != null && !searchParameters.name().isBlank()) {
-      if (horse.name() == null
-          || !horse.name().toLowerCase().contains(searchParameters.name().toLowerCase())) {
-        return false;
-      }
+  private List<Horse> matchingHorses(HorseSearchDto searchParameters, Set<HorseField> fields) {
+    var query = searchParameters.query();
+    var name = searchParameters.name();
+    if (query != null && !query.isBlank()) {
+      return rankedSearch(searchParameters, fields);
+    } else if (Boolean.TRUE.equals(searchParameters.fuzzy()) && name != null && !name.isBlank()) {
+      return fuzzySearch(searchParameters, fields);
     }
+    return dao.search(searchParameters, searchIndex.candidates(searchParameters, ownerIdsOf(searchParameters)), fields);
+  }
 
-    // Description filter (case-insensitive partial match)
-    if (searchParameters.description() != null && !searchParameters.description().isBlank()) {
-      if (horse.description() == null
-          || !horse.description().toLowerCase().contains(searchParameters.description().toLowerCase())) {
-        return false;
-      }
+  /**
+   * Gets the IDs of the owners the search parameters filter by, to look them up in the bitmaps of the search index.
+   * The owners matching the owner name are intersected with the given owner IDs.
+   *
+   * @param searchParameters the search parameters
+   * @return the IDs of the owners, one of which a matching horse must have, or null if the search parameters do not filter by owner
+   */
+  private Set<Long> ownerIdsOf(HorseSearchDto searchParameters) {
+    Set<Long> ownerIds = null;
+    if (searchParameters.ownerIds() != null && !searchParameters.ownerIds().isEmpty()) {
+      ownerIds = new HashSet<>(searchParameters.ownerIds());
     }
-
-    // Born before filter (horse must be born before the given date)
-    if (searchParameters.bornBefore() != null) {
-      if (horse.dateOfBirth() == null || !horse.dateOfBirth().isBefore(searchParameters.bornBefore())) {
-        return false;
+    var ownerName = searchParameters.ownerName();
+    if (ownerName != null && !ownerName.isBlank()) {
+      // All matching owners are needed to filter horses, not just the first page of them
+      Set<Long> named = ownerService.search(new OwnerSearchDto(ownerName, Integer.MAX_VALUE))
+          .map(OwnerDto::id)
+          .collect(Collectors.toSet());
+      if (ownerIds == null) {
+        ownerIds = named;
+      } else {
+        ownerIds.retainAll(named);
       }
     }
+    return ownerIds;
+  }
 
-    // Sex filter (exact match)
-    if (searchParameters.sex() != null) {
-      if (horse.sex() != searchParameters.sex()) {
-        return false;
+  /**
+   * Searches for the horses whose description is most relevant for the full-text query of the search parameters,
+   * and that match all other search parameters.
+   * The ranking is taken from the search index, the persistent data store filters the best ranked horses.
+   * If too many of them are filtered out to fill the limit, the search is repeated with more ranked horses.
+   *
+   * @param searchParameters the search parameters, including a full-text query
+   * @param fields the fields to load, null for all fields
+   * @return the matching horses, from the most to the least relevant
+   */
+  private List<Horse> rankedSearch(HorseSearchDto searchParameters, Set<HorseField> fields) {
+    var limit = searchParameters.limit() != null && searchParameters.limit() > 0 ? searchParameters.limit() : Integer.MAX_VALUE;
+    var filter = filterOf(searchParameters, searchParameters.name());
+    int fetch = limit == Integer.MAX_VALUE ? limit : Math.max(limit, 8) * 2;
+    while (true) {
+      var hits = searchIndex.rank(searchParameters.query(), fetch);
+      Map<Long, Horse> matching = new HashMap<>();
+      for (var horse : dao.search(filter, hits.stream().map(Bm25Index.Hit::id).toList(), fields)) {
+        matching.put(horse.id(), horse);
       }
+      var horses = hits.stream()
+          .map(hit -> matching.get(hit.id()))
+          .filter(Objects::nonNull)
+          .limit(limit)
+          .toList();
+      // Fewer hits than requested means, that every relevant horse has been looked at
+      if (horses.size() == limit || hits.size() < fetch) {
+        return horses;
+      }
+      fetch = fetch > Integer.MAX_VALUE / 4 ? Integer.MAX_VALUE : fetch * 4;
     }
+  }
 
-    // Owner name filter (case-insensitive partial match on owner's name)
-    if (searchParameters.ownerName() != null && !searchParameters.ownerName().isBlank()) {
-      if (horse.ownerId() == null) {
-        return false; // Horse has no owner, but we're searching for owner name
-      }
-      OwnerDto owner = ownerMap.get(horse.ownerId());
-      if (owner == null) {
-        return false; // Owner not found
-      }
-      String fullOwnerName = (owner.firstName() + " " + owner.lastName()).toLowerCase();
-      if (!fullOwnerName.contains(searchParameters.ownerName().toLowerCase())) {
-        return false;
-      }
+  /**
+   * Searches for the horses whose name is similar to the name of the search parameters, despite typos,
+   * and that match all other search parameters.
+   *
+   * @param searchParameters the search parameters, including a name
+   * @param fields the fields to load, null for all fields
+   * @return the matching horses, from the most to the least similar name
+   */
+  private List<Horse> fuzzySearch(HorseSearchDto searchParameters, Set<HorseField> fields) {
+    var matches = searchIndex.similarNames(searchParameters.name());
+    var filter = filterOf(searchParameters, null);
+    Map<Long, Horse> matching = new HashMap<>();
+    for (var horse : dao.search(filter, matches.stream().map(FuzzyIndex.Match::id).toList(), fields)) {
+      matching.put(horse.id(), horse);
     }
+    var limit = searchParameters.limit() != null && searchParameters.limit() > 0 ? searchParameters.limit() : Integer.MAX_VALUE;
+    return matches.stream()
+        .map(match -> matching.get(match.id()))
+        .filter(Objects::nonNull)
+        .limit(limit)
+        .toList();
+  }
 
-    return true;
+  /**
+   * Gets the filters of the search parameters, without limit, full-text query and fuzzy matching,
+   * to filter the horses ranked by the search index in the persistent data store.
+   *
+   * @param searchParameters the search parameters
+   * @param name the substring of the name to filter by, null to not filter by name
+   * @return the filters
+   */
+  private static HorseSearchDto filterOf(HorseSearchDto searchParameters, String name) {
+    return new HorseSearchDto(name, searchParameters.description(), searchParameters.bornBefore(), searchParameters.sex(),
+        searchParameters.ownerName(), null, null, null,
+        searchParameters.ownerIds(), searchParameters.birthYearFrom(), searchParameters.birthYearTo(), searchParameters.bornAfter(),
+        null, null);
+  }
+
+  /**
+   * Loads the owners of all given horses with a single lookup.
+   *
+   * @param horses the horses to load the owners for
+   * @return map of owner IDs to owner DTOs, containing the owner of every given horse, that has one
+   */
+  private Map<Long, OwnerDto> ownerMapForHorses(List<Horse> horses) {
+    var ownerIds = horses.stream()
+        .map(Horse::ownerId)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toUnmodifiableSet());
+    try {
+      return !ownerIds.isEmpty() ? ownerService.getAllById(ownerIds) : Map.of();
+    } catch (NotFoundException e) {
+      throw new FatalException("Horse, that is already persisted, refers to non-existing owner", e);
+    }
   }
 
   @Override
@@ -150,32 +330,133 @@ public class HorseServiceImpl implements HorseService {
       HorseCreateDto horse
   ) throws ValidationException, ConflictException {
     LOG.trace("create({})", horse);
-    validator.validateForCreate(horse);
-    var newHorse = dao.create(horse);
+    var parents = parentsById(horse.parentIds());
+    validator.validateForCreate(horse, parents);
+    try {
+      var newHorse = dao.create(horse);
+      searchIndex.put(newHorse);
+
+      // Set parent relationships if provided
+      if (horse.parentIds() != null && !horse.parentIds().isEmpty()) {
+        parentDao.setParents(newHorse.id(), horse.parentIds());
+        pedigreeGraph.setParents(newHorse.id(), horse.parentIds());
+      }
 
-    // Set parent relationships if provided
-    if (horse.parentIds() != null && !horse.parentIds().isEmpty()) {
-      parentDao.setParents(newHorse.id(), horse.parentIds());
+      return detailDto(newHorse, List.copyOf(parents.values()));
+    } finally {
+      // Only after the write, so no search started before it can put its result back
+      searchCache.invalidate();
     }
+  }
 
-    var ownerMap = ownerMapForSingleId(newHorse.ownerId());
-    var parentList = parentListForHorseId(newHorse.id());
-    return mapper.entityToDetailDto(
-        newHorse,
-        ownerMap,
-        parentList);
+  @Override
+  @Transactional
+  public List<HorseDetailDto> createAll(
+      List<HorseBatchCreateDto> horses
+  ) throws ValidationException, ConflictException {
+    LOG.trace("createAll({})", horses == null ? null : horses.size());
+    var parents = parentsById(horses == null ? null : horses.stream()
+        .filter(horse -> horse.parentIds() != null)
+        .flatMap(horse -> horse.parentIds().stream())
+        .distinct()
+        .toList());
+    validator.validateForBatchCreate(horses, parents);
+    // Looked up before the writes, so an unknown owner fails the batch before anything is written
+    final Map<Long, OwnerDto> ownerMap = ownersOfBatch(horses, parents.values());
+    var created = dao.createAll(horses.stream()
+        .map(horse -> new HorseCreateDto(horse.name(), horse.description(), horse.dateOfBirth(), horse.sex(), horse.ownerId(), null))
+        .toList());
+
+    Map<String, Long> idsByTemporaryId = new HashMap<>();
+    for (int i = 0; i < horses.size(); i++) {
+      if (horses.get(i).temporaryId() != null) {
+        idsByTemporaryId.put(horses.get(i).temporaryId(), created.get(i).id());
+      }
+    }
+    Map<Long, List<Long>> parentIdsByHorseId = new LinkedHashMap<>();
+    for (int i = 0; i < horses.size(); i++) {
+      List<Long> parentIds = new ArrayList<>();
+      if (horses.get(i).parentIds() != null) {
+        parentIds.addAll(horses.get(i).parentIds());
+      }
+      if (horses.get(i).parentTemporaryIds() != null) {
+        horses.get(i).parentTemporaryIds().forEach(temporaryId -> parentIds.add(idsByTemporaryId.get(temporaryId)));
+      }
+      if (!parentIds.isEmpty()) {
+        parentIdsByHorseId.put(created.get(i).id(), parentIds);
+      }
+    }
+    parentDao.addParents(parentIdsByHorseId);
+
+    // The indexes and the search cache only follow the batch once it is committed, a rolled back batch leaves them untouched
+    afterCommit(() -> {
+      created.forEach(searchIndex::put);
+      parentIdsByHorseId.forEach(pedigreeGraph::setParents);
+      // Only after the commit, so no search started before it can put its result back
+      searchCache.invalidate();
+    });
+
+    Map<Long, Horse> parentsAndCreated = new HashMap<>(parents);
+    created.forEach(horse -> parentsAndCreated.put(horse.id(), horse));
+    return created.stream()
+        .map(horse -> detailDto(horse, parentIdsByHorseId.getOrDefault(horse.id(), List.of()).stream()
+            .map(parentsAndCreated::get)
+            .sorted(Comparator.comparing(Horse::id))
+            .toList(), ownerMap))
+        .toList();
+  }
+
+  /**
+   * Runs an action once the current transaction has committed, or right away if no transaction is active.
+   *
+   * @param action the action to run
+   */
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  /**
+   * Loads the owners of a batch of horses and of their existing parents with a single lookup, ensuring all of them exist.
+   *
+   * @param horses the horses of the batch
+   * @param parents the existing parents of the horses
+   * @return the owners of the horses and their parents by their ID
+   * @throws ConflictException if an owner does not exist
+   */
+  private Map<Long, OwnerDto> ownersOfBatch(List<HorseBatchCreateDto> horses, Collection<Horse> parents) throws ConflictException {
+    var ownerIds = Stream.concat(horses.stream().map(HorseBatchCreateDto::ownerId), parents.stream().map(Horse::ownerId))
+        .filter(Objects::nonNull)
+        .collect(Collectors.toUnmodifiableSet());
+    try {
+      return !ownerIds.isEmpty() ? ownerService.getAllById(ownerIds) : Map.of();
+    } catch (NotFoundException e) {
+      throw new ConflictException("Owner of horses for batch create does not exist", List.of(e.getMessage()));
+    }
   }
 
   @Override
   public HorseDetailDto getById(long id) throws NotFoundException {
     LOG.trace("details({})", id);
     Horse horse = dao.getById(id);
-    var ownerMap = ownerMapForSingleId(horse.ownerId());
-    var parentList = parentListForHorseId(horse.id());
-    return mapper.entityToDetailDto(
-        horse,
-        ownerMap,
-        parentList);
+    return detailDto(horse, parentsOf(horse.id()));
+  }
+
+  @Override
+  public Map<String, Object> getById(long id, Set<HorseField> fields) throws NotFoundException {
+    LOG.trace("details({}, {})", id, fields);
+    Horse horse = dao.getById(id, fields);
+    // Without the parents, neither they nor their owners are loaded
+    var parents = fields.contains(HorseField.PARENTS) ? parentsOf(horse.id()) : List.<Horse>of();
+    return mapper.detailDtoToFields(detailDto(horse, parents), fields);
   }
 
   @Override
@@ -190,45 +471,261 @@ public class HorseServiceImpl implements HorseService {
     // Get the root horse
     Horse rootHorse = dao.getById(id);
 
-    // Build the family tree recursively
-    return buildFamilyTreeNode(rootHorse, maxGenerations, 0);
+    // Collect the ancestors generation by generation from the pedigree graph
+    Map<Long, List<Long>> parentIdsByHorseId = new HashMap<>();
+    Set<Long> ancestorIds = new HashSet<>();
+    List<Long> generation = List.of(rootHorse.id());
+    for (int currentGeneration = 1; currentGeneration < maxGenerations && !generation.isEmpty(); currentGeneration++) {
+      List<Long> nextGeneration = new ArrayList<>();
+      for (var horseId : generation) {
+        List<Long> parentIds = new ArrayList<>();
+        for (long parentId : pedigreeGraph.getParentIds(horseId)) {
+          parentIds.add(parentId);
+          // Horses reachable over several paths (pedigree collapse) are loaded once
+          if (ancestorIds.add(parentId)) {
+            nextGeneration.add(parentId);
+          }
+        }
+        parentIdsByHorseId.put(horseId, parentIds);
+      }
+      generation = nextGeneration;
+    }
+
+    // Load all ancestors with a single query
+    Map<Long, Horse> horses = new HashMap<>();
+    horses.put(rootHorse.id(), rootHorse);
+    for (var ancestor : dao.getAllById(ancestorIds)) {
+      horses.put(ancestor.id(), ancestor);
+    }
+
+    // Assemble the family tree from the loaded horses
+    return buildFamilyTreeNode(rootHorse, horses, parentIdsByHorseId, maxGenerations, 0);
+  }
+
+  @Override
+  public Stream<HorseDescendantDto> getDescendants(long id, int maxGenerations, HorseDescendantSearchDto filter)
+      throws NotFoundException, ValidationException {
+    LOG.trace("getDescendants({}, {}, {})", id, maxGenerations, filter);
+
+    if (maxGenerations < 1 || maxGenerations > 10) {
+      throw new ValidationException("Maximum generations must be between 1 and 10",
+          List.of("maxGenerations must be between 1 and 10, but was " + maxGenerations));
+    }
+
+    // Make sure the horse exists
+    dao.getById(id);
+
+    // Collect the descendants with one lookup of the children of a whole generation at a time
+    Map<Long, Integer> generationByHorseId = new HashMap<>();
+    Map<Long, List<Long>> parentIdsByHorseId = new HashMap<>();
+    List<Long> generation = List.of(id);
+    for (int currentGeneration = 1; currentGeneration <= maxGenerations && !generation.isEmpty(); currentGeneration++) {
+      List<Long> nextGeneration = new ArrayList<>();
+      for (var child : parentDao.getChildrenByParentIds(generation)) {
+        parentIdsByHorseId.computeIfAbsent(child.horseId(), horseId -> new ArrayList<>()).add(child.parentId());
+        // Horses descending over several paths are listed once, in the closest generation
+        if (generationByHorseId.putIfAbsent(child.horseId(), currentGeneration) == null) {
+          nextGeneration.add(child.horseId());
+        }
+      }
+      generation = nextGeneration;
+    }
+
+    // Load all descendants with a single query, then filter them
+    return dao.getAllById(generationByHorseId.keySet()).stream()
+        .filter(horse -> filter.bornAfter() == null || horse.dateOfBirth().isAfter(filter.bornAfter()))
+        .filter(horse -> filter.bornBefore() == null || horse.dateOfBirth().isBefore(filter.bornBefore()))
+        .filter(horse -> filter.sex() == null || horse.sex() == filter.sex())
+        .sorted(Comparator.comparing((Horse horse) -> generationByHorseId.get(horse.id())).thenComparing(Horse::id))
+        .map(horse -> new HorseDescendantDto(
+            horse.id(),
+            horse.name(),
+            horse.dateOfBirth(),
+            horse.sex(),
+            generationByHorseId.get(horse.id()),
+            parentIdsByHorseId.get(horse.id()).stream().sorted().toList()));
+  }
+
+  @Override
+  public HorseRelationshipDto getRelationship(long firstId, long secondId, int maxGenerations)
+      throws NotFoundException, ValidationException {
+    LOG.trace("getRelationship({}, {}, {})", firstId, secondId, maxGenerations);
+
+    if (maxGenerations < 1 || maxGenerations > 10) {
+      throw new ValidationException("Maximum generations must be between 1 and 10",
+          List.of("maxGenerations must be between 1 and 10, but was " + maxGenerations));
+    }
+
+    // Both horses are loaded up front, so an unknown ID is reported even when the IDs are equal
+    final Horse first = dao.getById(firstId);
+    final Horse second = dao.getById(secondId);
+    if (firstId == secondId) {
+      return new HorseRelationshipDto(firstId, secondId, "same horse", List.of());
+    }
+
+    // Expand the ancestors of both horses one generation at a time, each horse counts as its own ancestor
+    Map<Long, Integer> firstDistances = new HashMap<>(Map.of(firstId, 0));
+    Map<Long, Integer> secondDistances = new HashMap<>(Map.of(secondId, 0));
+    List<Long> firstFrontier = List.of(firstId);
+    List<Long> secondFrontier = List.of(secondId);
+    int firstDepth = 0;
+    int secondDepth = 0;
+    int closest = Integer.MAX_VALUE;
+    while (true) {
+      // A common ancestor not found yet is at least one generation beyond the searched generations of one horse
+      boolean firstExhausted = firstFrontier.isEmpty() || firstDepth >= maxGenerations;
+      boolean secondExhausted = secondFrontier.isEmpty() || secondDepth >= maxGenerations;
+      int bound = Math.min(firstExhausted ? Integer.MAX_VALUE : firstDepth + 1, secondExhausted ? Integer.MAX_VALUE : secondDepth + 1);
+      if (closest <= bound || (firstExhausted && secondExhausted)) {
+        break;
+      }
+      // Expand the smaller frontier
+      if (!firstExhausted && (secondExhausted || firstFrontier.size() <= secondFrontier.size())) {
+        firstFrontier = expandAncestors(firstFrontier, ++firstDepth, firstDistances);
+        closest = Math.min(closest, closestMeeting(firstFrontier, firstDistances, secondDistances));
+      } else {
+        secondFrontier = expandAncestors(secondFrontier, ++secondDepth, secondDistances);
+        closest = Math.min(closest, closestMeeting(secondFrontier, secondDistances, firstDistances));
+      }
+    }
+
+    if (closest == Integer.MAX_VALUE) {
+      return new HorseRelationshipDto(firstId, secondId, "unrelated", List.of());
+    }
+    int distance = closest;
+    var closestIds = firstDistances.keySet().stream()
+        .filter(horseId -> secondDistances.containsKey(horseId))
+        .filter(horseId -> firstDistances.get(horseId) + secondDistances.get(horseId) == distance)
+        .toList();
+    Map<Long, Horse> horses = new HashMap<>(Map.of(firstId, first, secondId, second));
+    for (var ancestor : dao.getAllById(closestIds)) {
+      horses.put(ancestor.id(), ancestor);
+    }
+    // The most balanced of the closest common ancestors names the relationship, e.g. cousins rather than great-aunt
+    var commonAncestors = closestIds.stream()
+        .map(horseId -> new HorseCommonAncestorDto(
+            horseId, horses.get(horseId).name(), firstDistances.get(horseId), secondDistances.get(horseId)))
+        .sorted(Comparator.comparingInt((HorseCommonAncestorDto ancestor) -> Math.abs(ancestor.firstDistance() - ancestor.secondDistance()))
+            .thenComparingInt(HorseCommonAncestorDto::firstDistance)
+            .thenComparing(HorseCommonAncestorDto::id))
+        .toList();
+    var nearest = commonAncestors.getFirst();
+    // The relationship is full, if the nearest common ancestor and another one are the parents of a horse on both sides
+    boolean full = nearest.firstDistance() > 0 && nearest.secondDistance() > 0 && commonAncestors.stream()
+        .filter(ancestor -> ancestor != nearest && ancestor.firstDistance() == nearest.firstDistance())
+        .anyMatch(ancestor -> hasChildOf(nearest.id(), ancestor.id(), firstDistances, nearest.firstDistance() - 1)
+            && hasChildOf(nearest.id(), ancestor.id(), secondDistances, nearest.secondDistance() - 1));
+    String relationship = relationshipLabel(nearest.firstDistance(), nearest.secondDistance(), full, first.sex());
+    return new HorseRelationshipDto(firstId, secondId, relationship, commonAncestors);
+  }
+
+  private List<Long> expandAncestors(List<Long> frontier, int depth, Map<Long, Integer> distances) {
+    List<Long> nextFrontier = new ArrayList<>();
+    for (var horseId : frontier) {
+      for (long parentId : pedigreeGraph.getParentIds(horseId)) {
+        if (distances.putIfAbsent(parentId, depth) == null) {
+          nextFrontier.add(parentId);
+        }
+      }
+    }
+    return nextFrontier;
+  }
+
+  private boolean hasChildOf(long firstParentId, long secondParentId, Map<Long, Integer> distances, int distance) {
+    return distances.entrySet().stream()
+        .filter(entry -> entry.getValue() == distance)
+        .map(entry -> pedigreeGraph.getParentIds(entry.getKey()))
+        .anyMatch(parentIds -> parentIds.length == 2
+            && (parentIds[0] == firstParentId && parentIds[1] == secondParentId
+                || parentIds[0] == secondParentId && parentIds[1] == firstParentId));
+  }
+
+  private static int closestMeeting(List<Long> frontier, Map<Long, Integer> distances, Map<Long, Integer> otherDistances) {
+    int closest = Integer.MAX_VALUE;
+    for (var horseId : frontier) {
+      Integer otherDistance = otherDistances.get(horseId);
+      if (otherDistance != null) {
+        closest = Math.min(closest, distances.get(horseId) + otherDistance);
+      }
+    }
+    return closest;
+  }
+
+  /**
+   * Names the relationship of a horse to another horse, given their distances to their nearest common ancestor.
+   *
+   * @param firstDistance the number of generations between the horse and the common ancestor
+   * @param secondDistance the number of generations between the other horse and the common ancestor
+   * @param full whether both parents of the common generation are shared, e.g. full rather than half siblings
+   * @param sex the sex of the horse, for names like aunt or uncle
+   * @return the name of the relationship
+   */
+  private static String relationshipLabel(int firstDistance, int secondDistance, boolean full, Sex sex) {
+    String half = full ? "" : "half-";
+    if (firstDistance == 0) {
+      return "great-".repeat(Math.max(0, secondDistance - 2)) + (secondDistance >= 2 ? "grandparent" : "parent");
+    }
+    if (secondDistance == 0) {
+      return "great-".repeat(Math.max(0, firstDistance - 2)) + (firstDistance >= 2 ? "grandchild" : "child");
+    }
+    if (firstDistance == 1 && secondDistance == 1) {
+      return half + "siblings";
+    }
+    if (firstDistance == 1) {
+      return half + "great-".repeat(secondDistance - 2) + (sex == Sex.FEMALE ? "aunt" : "uncle");
+    }
+    if (secondDistance == 1) {
+      return half + "great-".repeat(firstDistance - 2) + (sex == Sex.FEMALE ? "niece" : "nephew");
+    }
+    int degree = Math.min(firstDistance, secondDistance) - 1;
+    int removed = Math.abs(firstDistance - secondDistance);
+    String label = (full ? "" : "half ") + ORDINALS[degree - 1] + " cousins";
+    return switch (removed) {
+      case 0 -> label;
+      case 1 -> label + " once removed";
+      case 2 -> label + " twice removed";
+      default -> label + " " + removed + " times removed";
+    };
   }
 
   /**
    * Recursively builds a family tree node for the given horse.
-   * This method loads all ancestors up to the specified maximum generations.
+   * All ancestors up to the specified maximum generations must already be loaded into the given maps.
    *
    * @param horse the horse to build the tree node for
+   * @param horses all loaded horses of the family tree by their ID
+   * @param parentIdsByHorseId the IDs of the parents of each loaded horse by the horse's ID
    * @param maxGenerations the maximum number of generations to include
    * @param currentGeneration the current generation level (0 = root)
    * @return the family tree node for the horse
    */
-  private HorseFamilyTreeDto buildFamilyTreeNode(Horse horse, int maxGenerations, int currentGeneration) {
+  private HorseFamilyTreeDto buildFamilyTreeNode(Horse horse,
+                                                 Map<Long, Horse> horses,
+                                                 Map<Long, List<Long>> parentIdsByHorseId,
+                                                 int maxGenerations,
+                                                 int currentGeneration) {
     // Stop recursion if we've reached the maximum generations
     if (currentGeneration >= maxGenerations) {
       return null;
     }
 
-    // Load parents recursively
-    var parentRelationships = parentDao.getParentsByHorseId(horse.id());
-
     // Separate parents by sex (assuming at most one male and one female parent)
     HorseFamilyTreeDto mother = null;
     HorseFamilyTreeDto father = null;
 
-    for (var parentRel : parentRelationships) {
-      try {
-        Horse parentHorse = dao.getById(parentRel.parentId());
-        var parentTreeNode = buildFamilyTreeNode(parentHorse, maxGenerations, currentGeneration + 1);
-
-        if (parentHorse.sex() == Sex.FEMALE) {
-          mother = parentTreeNode;
-        } else if (parentHorse.sex() == Sex.MALE) {
-          father = parentTreeNode;
-        }
-      } catch (NotFoundException e) {
+    for (var parentId : parentIdsByHorseId.getOrDefault(horse.id(), List.of())) {
+      Horse parentHorse = horses.get(parentId);
+      if (parentHorse == null) {
         // If parent is not found, continue without it (shouldn't happen in a consistent DB)
-        LOG.warn("Parent horse {} not found for horse {}", parentRel.parentId(), horse.id());
+        LOG.warn("Parent horse {} not found for horse {}", parentId, horse.id());
+        continue;
+      }
+      var parentTreeNode = buildFamilyTreeNode(parentHorse, horses, parentIdsByHorseId, maxGenerations, currentGeneration + 1);
+
+      if (parentHorse.sex() == Sex.FEMALE) {
+        mother = parentTreeNode;
+      } else if (parentHorse.sex() == Sex.MALE) {
+        father = parentTreeNode;
       }
     }
 
@@ -247,102 +744,197 @@ public class HorseServiceImpl implements HorseService {
       HorseUpdateDto horse
   ) throws ValidationException, ConflictException, NotFoundException {
     LOG.trace("update({})", horse);
-    validator.validateForUpdate(horse);
-    var updatedHorse = dao.update(horse);
+    var parents = parentsById(horse.parentIds());
+    validator.validateForUpdate(horse, parents);
+    try {
+      var updatedHorse = dao.update(horse);
+      searchIndex.put(updatedHorse);
 
-    // Update parent relationships if provided
-    if (horse.parentIds() != null) {
-      parentDao.setParents(updatedHorse.id(), horse.parentIds());
-    }
+      // Update parent relationships if provided
+      if (horse.parentIds() != null) {
+        parentDao.setParents(updatedHorse.id(), horse.parentIds());
+        pedigreeGraph.setParents(updatedHorse.id(), horse.parentIds());
+      }
 
-    var ownerMap = ownerMapForSingleId(updatedHorse.ownerId());
-    var parentList = parentListForHorseId(updatedHorse.id());
-    return mapper.entityToDetailDto(
-        updatedHorse,
-        ownerMap,
-        parentList);
+      return detailDto(updatedHorse, horse.parentIds() != null
+          ? List.copyOf(parents.values())
+          : parentsOf(updatedHorse.id()));
+    } finally {
+      searchCache.invalidate();
+    }
   }
 
-  private Map<Long, OwnerDto> ownerMapForSingleId(Long ownerId) {
-    try {
-      return ownerId == null
-          ? null
-          : Collections.singletonMap(ownerId, ownerService.getById(ownerId));
-    } catch (NotFoundException e) {
-      throw new FatalException("Owner %d referenced by horse not found".formatted(ownerId));
+  /**
+   * Loads the horses referenced as parents with a single lookup.
+   *
+   * @param parentIds the IDs of the parents, may be null or contain null
+   * @return map of the existing parents by their ID, ordered by ID
+   */
+  private Map<Long, Horse> parentsById(List<Long> parentIds) {
+    Map<Long, Horse> parents = new LinkedHashMap<>();
+    if (parentIds != null) {
+      var ids = parentIds.stream().filter(Objects::nonNull).toList();
+      for (var parent : dao.getAllById(ids)) {
+        parents.put(parent.id(), parent);
+      }
     }
+    return parents;
   }
 
-  private List<ParentDto> parentListForHorseId(long horseId) {
-    try {
-      var parentRelationships = parentDao.getParentsByHorseId(horseId);
+  /**
+   * Loads the parents of a horse, as stored in the pedigree graph, with a single lookup.
+   *
+   * @param horseId the ID of the horse
+   * @return the parents of the horse ordered by ID
+   */
+  private List<Horse> parentsOf(long horseId) {
+    var parentIds = pedigreeGraph.getParentIds(horseId);
+    if (parentIds.length == 0) {
+      return List.of();
+    }
+    var parents = dao.getAllById(Arrays.stream(parentIds).boxed().toList());
+    if (parents.size() != parentIds.length) {
+      throw new FatalException("Parent horse of horse %d not found".formatted(horseId));
+    }
+    return parents;
+  }
 
-      if (parentRelationships.isEmpty()) {
-        return Collections.emptyList();
-      }
+  /**
+   * Assembles the details of a horse, loading the owners of the horse and its parents with a single lookup.
+   *
+   * @param horse the horse
+   * @param parents the parents of the horse
+   * @return the details of the horse
+   */
+  private HorseDetailDto detailDto(Horse horse, List<Horse> parents) {
+    var horses = new ArrayList<Horse>(parents.size() + 1);
+    horses.add(horse);
+    horses.addAll(parents);
+    return detailDto(horse, parents, ownerMapForHorses(horses));
+  }
 
-      List<ParentDto> parentList = new ArrayList<>();
-      for (var parentRel : parentRelationships) {
-        try {
-          Horse parentHorse = dao.getById(parentRel.parentId());
-          Map<Long, OwnerDto> ownerMap = ownerMapForSingleId(parentHorse.ownerId());
-          HorseListDto parentDto = mapper.entityToListDto(parentHorse, ownerMap != null ? ownerMap : Collections.emptyMap());
-
-          String relationship = parentHorse.sex() == Sex.FEMALE ? "mother" : "father";
-          parentList.add(new ParentDto(parentDto, relationship));
-        } catch (NotFoundException e) {
-          throw new FatalException("Parent horse %d not found".formatted(parentRel.parentId()));
-        }
-      }
-      return parentList;
-    } catch (Exception e) {
-      throw new FatalException("Error loading parent horses", e);
+  /**
+   * Assembles the details of a horse with already loaded owners.
+   *
+   * @param horse the horse
+   * @param parents the parents of the horse
+   * @param ownerMap the owners of the horse and its parents by their ID
+   * @return the details of the horse
+   */
+  private HorseDetailDto detailDto(Horse horse, List<Horse> parents, Map<Long, OwnerDto> ownerMap) {
+    List<ParentDto> parentList = new ArrayList<>();
+    for (var parent : parents) {
+      String relationship = parent.sex() == Sex.FEMALE ? "mother" : "father";
+      parentList.add(new ParentDto(mapper.entityToListDto(parent, ownerMap), relationship));
     }
+    return mapper.entityToDetailDto(
+        horse,
+        ownerMap,
+        parentList);
   }
 
   @Override
-  public Stream<HorseListDto> searchParents(String name) {
-    LOG.trace("searchParents({})", name);
+  public Stream<HorseListDto> searchParents(String name, HorseParentSearchDto filter) throws NotFoundException {
+    LOG.trace("searchParents({}, {})", name, filter);
 
     if (name == null || name.isBlank()) {
       return Stream.empty();
     }
 
-    var horses = dao.getAll();
-
-    // Get all owners first to handle owner name filtering
-    var allOwnerIds = horses.stream()
-        .map(Horse::ownerId)
-        .filter(Objects::nonNull)
-        .collect(Collectors.toUnmodifiableSet());
-    final Map<Long, OwnerDto> allOwnerMap;
-    try {
-      allOwnerMap = !allOwnerIds.isEmpty() ? ownerService.getAllById(allOwnerIds) : Map.of();
-    } catch (NotFoundException e) {
-      throw new FatalException("Horse, that is already persisted, refers to non-existing owner", e);
+    var childBirthDate = filter.childBirthDate();
+    if (childBirthDate == null && filter.childId() != null) {
+      childBirthDate = dao.getById(filter.childId()).dateOfBirth();
     }
-
-    // Filter by name (case-insensitive partial match) and limit to 5 results
+    var eligible = parentEligibility(filter, childBirthDate);
+
+    // Names starting with the search term first, then names with a word starting with it, then names containing it anywhere.
+    // Ineligible horses are skipped, so each step looks at more horses until enough eligible ones are found.
+    Map<Long, Horse> horsesById = new LinkedHashMap<>();
+    for (int fetch = PARENT_CANDIDATES; ; fetch *= 4) {
+      var ids = searchIndex.completions(name, fetch);
+      Map<Long, Horse> completions = new HashMap<>();
+      for (var horse : dao.getAllById(ids)) {
+        completions.put(horse.id(), horse);
+      }
+      horsesById.clear();
+      for (var id : ids) {
+        var horse = completions.get(id);
+        if (horse != null && eligible.test(horse) && horsesById.size() < PARENT_CANDIDATES) {
+          horsesById.put(id, horse);
+        }
+      }
+      if (horsesById.size() == PARENT_CANDIDATES || ids.size() < fetch) {
+        break;
+      }
+    }
+    var candidates = searchIndex.candidates(name, null);
+    for (int fetch = PARENT_CANDIDATES + horsesById.size(); horsesById.size() < PARENT_CANDIDATES; fetch *= 4) {
+      // Date of birth and sex are filtered by the query already
+      var containing = dao.search(new HorseSearchDto(name, null, childBirthDate, filter.sex(), null, fetch), candidates);
+      for (var horse : containing) {
+        if (horsesById.size() == PARENT_CANDIDATES) {
+          break;
+        }
+        if (eligible.test(horse)) {
+          horsesById.putIfAbsent(horse.id(), horse);
+        }
+      }
+      if (containing.size() < fetch) {
+        break;
+      }
+    }
+    if (Boolean.TRUE.equals(filter.fuzzy()) && horsesById.size() < PARENT_CANDIDATES) {
+      // Fill up with names similar to the search term, in case it is misspelled
+      var similarIds = searchIndex.similarNames(name).stream().map(FuzzyIndex.Match::id).toList();
+      Map<Long, Horse> similar = new HashMap<>();
+      for (var horse : dao.getAllById(similarIds)) {
+        similar.put(horse.id(), horse);
+      }
+      for (var id : similarIds) {
+        var horse = similar.get(id);
+        if (horsesById.size() < PARENT_CANDIDATES && horse != null && eligible.test(horse)) {
+          horsesById.putIfAbsent(id, horse);
+        }
+      }
+    }
+    var horses = List.copyOf(horsesById.values());
+    var ownerMap = ownerMapForHorses(horses);
     return horses.stream()
-        .filter(horse -> {
-          if (horse.name() == null) {
-            return false;
-          }
-          return horse.name().toLowerCase().contains(name.toLowerCase());
-        })
-        .limit(5)
-        .map(horse -> mapper.entityToListDto(horse, allOwnerMap));
+        .map(horse -> mapper.entityToListDto(horse, ownerMap));
   }
 
+  /**
+   * Builds the check, whether a horse would be accepted by {@link HorseValidator} as a parent of the child described by the filter.
+   *
+   * @param filter the child and the other parent restricting the candidates
+   * @param childBirthDate the date of birth of the child, may be null
+   * @return the predicate accepting the eligible parents
+   */
+  private Predicate<Horse> parentEligibility(HorseParentSearchDto filter, LocalDate childBirthDate) {
+    Set<Long> excludedIds = filter.excludeIds() == null ? Set.of() : new HashSet<>(filter.excludeIds());
+    Long childId = filter.childId();
+    return horse -> !excludedIds.contains(horse.id())
+        && (childId == null || !childId.equals(horse.id()) && !pedigreeGraph.isAncestor(childId, horse.id()))
+        && (childBirthDate == null || horse.dateOfBirth().isBefore(childBirthDate))
+        && (filter.sex() == null || horse.sex() == filter.sex());
+  }
+
+
   @Override
   public void delete(long id) throws NotFoundException {
     LOG.trace("delete({})", id);
 
-    // Delete parent relationships first (both as child and as parent)
-    parentDao.deleteParentsByHorseId(id);
-    parentDao.deleteChildrenByParentId(id);
-
-    dao.delete(id);
+    try {
+      // Delete parent relationships first (both as child and as parent)
+      parentDao.deleteParentsByHorseId(id);
+      parentDao.deleteChildrenByParentId(id);
+
+      dao.delete(id);
+      pedigreeGraph.removeHorse(id);
+      searchIndex.remove(id);
+    } finally {
+      searchCache.invalidate();
+    }
   }
 
 }
@@ -1,17 +1,19 @@
 package at.ac.tuwien.sepr.assignment.individual.service.impl;
 
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseBatchCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
 import java.util.List;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
-import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
-import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import java.time.LocalDate;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -22,10 +24,12 @@ import org.springframework.stereotype.Component;
 @Component
 public class HorseValidator {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
-  private final HorseDao horseDao;
+  // Maximum number of horses created in one batch
+  static final int MAX_BATCH_SIZE = 10_000;
+  private final PedigreeGraph pedigreeGraph;
 
-  public HorseValidator(HorseDao horseDao) {
-    this.horseDao = horseDao;
+  public HorseValidator(PedigreeGraph pedigreeGraph) {
+    this.pedigreeGraph = pedigreeGraph;
   }
 
 
@@ -33,11 +37,13 @@ public class HorseValidator {
    * Validates a horse before creation, ensuring all fields meet constraints and checking for conflicts.
    *
    * @param horse the {@link HorseCreateDto} to validate
+   * @param parents the existing horses referenced as parents by {@code horse}, by their ID
    * @throws ValidationException if validation fails
    * @throws ConflictException   if conflicts with existing data are detected
    */
   public void validateForCreate(
-       HorseCreateDto horse
+       HorseCreateDto horse,
+       Map<Long, Horse> parents
   ) throws ValidationException, ConflictException {
     LOG.trace("validateForCreate({})", horse);
     List<String> validationErrors = new ArrayList<>();
@@ -68,7 +74,7 @@ public class HorseValidator {
     }
 
     // Validate parents
-    validateParents(null, horse.parentIds(), horse.dateOfBirth(), validationErrors);
+    validateParents(null, horse.parentIds(), parents, horse.dateOfBirth(), validationErrors);
 
     if (!validationErrors.isEmpty()) {
       throw new ValidationException("Validation of horse for create failed", validationErrors);
@@ -76,16 +82,101 @@ public class HorseValidator {
 
   }
 
+  /**
+   * Validates a batch of horses before creation, applying the same checks to every horse as {@link #validateForCreate}.
+   * Parents within the batch are checked like existing parents, and must be referenced by a temporary ID,
+   * that exactly one horse of the batch has.
+   * The errors of each horse are prefixed with its position in the batch, starting at 1.
+   *
+   * @param horses the horses to validate
+   * @param parents the existing horses referenced as parents by the horses, by their ID
+   * @throws ValidationException if validation fails
+   * @throws ConflictException   if conflicts with existing data are detected
+   */
+  public void validateForBatchCreate(
+      List<HorseBatchCreateDto> horses,
+      Map<Long, Horse> parents
+  ) throws ValidationException, ConflictException {
+    LOG.trace("validateForBatchCreate({})", horses == null ? null : horses.size());
+    List<String> validationErrors = new ArrayList<>();
+    if (horses == null || horses.isEmpty()) {
+      throw new ValidationException("Validation of horses for batch create failed", List.of("A batch must contain at least one horse"));
+    }
+    if (horses.size() > MAX_BATCH_SIZE) {
+      throw new ValidationException("Validation of horses for batch create failed",
+          List.of("A batch must not contain more than %d horses".formatted(MAX_BATCH_SIZE)));
+    }
+
+    // Horses of the batch can be parents like existing horses, with negative IDs, which no persisted horse has
+    Map<String, Integer> positions = new HashMap<>();
+    Map<Long, Horse> candidates = new HashMap<>(parents);
+    for (int i = 0; i < horses.size(); i++) {
+      var horse = horses.get(i);
+      var temporaryId = horse.temporaryId();
+      if (temporaryId != null && positions.putIfAbsent(temporaryId, i) != null) {
+        validationErrors.add("Horse %d: Temporary ID %s is already used by horse %d".formatted(i + 1, temporaryId, positions.get(temporaryId) + 1));
+      }
+      // Horses without a date of birth are reported for themselves, not as parents
+      if (horse.dateOfBirth() != null) {
+        candidates.put(placeholderId(i), new Horse(placeholderId(i), horse.name(), horse.description(), horse.dateOfBirth(), horse.sex(),
+            horse.ownerId()));
+      }
+    }
+
+    for (int i = 0; i < horses.size(); i++) {
+      var horse = horses.get(i);
+      List<Long> parentIds = new ArrayList<>();
+      if (horse.parentIds() != null) {
+        parentIds.addAll(horse.parentIds());
+      }
+      if (horse.parentTemporaryIds() != null) {
+        for (var parentTemporaryId : horse.parentTemporaryIds()) {
+          Integer position = positions.get(parentTemporaryId);
+          if (position == null) {
+            validationErrors.add("Horse %d: Parent with temporary ID %s is not part of the batch".formatted(i + 1, parentTemporaryId));
+            continue;
+          }
+          if (position == i) {
+            validationErrors.add("Horse %d: A horse cannot be its own parent".formatted(i + 1));
+            continue;
+          }
+          if (candidates.containsKey(placeholderId(position))) {
+            parentIds.add(placeholderId(position));
+          }
+        }
+      }
+
+      try {
+        validateForCreate(new HorseCreateDto(horse.name(), horse.description(), horse.dateOfBirth(), horse.sex(), horse.ownerId(), parentIds),
+            candidates);
+      } catch (ValidationException e) {
+        for (var error : e.errors()) {
+          validationErrors.add("Horse %d: %s".formatted(i + 1, error));
+        }
+      }
+    }
+
+    if (!validationErrors.isEmpty()) {
+      throw new ValidationException("Validation of horses for batch create failed", validationErrors);
+    }
+  }
+
+  private static long placeholderId(int position) {
+    return -(position + 1L);
+  }
+
   /**
    * Validates a horse before update, ensuring all fields meet constraints and checking for conflicts.
    * Similar to validateForCreate but allows for ID validation.
    *
    * @param horse the {@link HorseUpdateDto} to validate
+   * @param parents the existing horses referenced as parents by {@code horse}, by their ID
    * @throws ValidationException if validation fails
    * @throws ConflictException   if conflicts with existing data are detected
    */
   public void validateForUpdate(
-       HorseUpdateDto horse
+       HorseUpdateDto horse,
+       Map<Long, Horse> parents
   ) throws ValidationException, ConflictException {
     LOG.trace("validateForUpdate({})", horse);
     List<String> validationErrors = new ArrayList<>();
@@ -121,7 +212,7 @@ public class HorseValidator {
     }
 
     // Validate parents
-    validateParents(horse.id(), horse.parentIds(), horse.dateOfBirth(), validationErrors);
+    validateParents(horse.id(), horse.parentIds(), parents, horse.dateOfBirth(), validationErrors);
 
     if (!validationErrors.isEmpty()) {
       throw new ValidationException("Validation of horse for update failed", validationErrors);
@@ -135,10 +226,15 @@ public class HorseValidator {
    *
    * @param horseId the horse's own ID (can be null for new horses)
    * @param parentIds the list of parent horse IDs (can be null or empty)
+   * @param parents the existing parent horses by their ID
    * @param horseBirthDate the horse's birth date
    * @param validationErrors list to add validation errors to
    */
-  private void validateParents(Long horseId, List<Long> parentIds, LocalDate horseBirthDate, List<String> validationErrors) {
+  private void validateParents(Long horseId,
+                               List<Long> parentIds,
+                               Map<Long, Horse> parents,
+                               LocalDate horseBirthDate,
+                               List<String> validationErrors) {
     if (parentIds == null || parentIds.isEmpty()) {
       return; // No parents to validate
     }
@@ -160,28 +256,32 @@ public class HorseValidator {
         continue;
       }
 
-      try {
-        var parent = horseDao.getById(parentId);
+      var parent = parents.get(parentId);
+      if (parent == null) {
+        validationErrors.add("Parent horse with ID " + parentId + " does not exist");
+        continue;
+      }
 
-        // Check that horse is not its own parent
-        if (horseId != null && horseId.equals(parentId)) {
-          validationErrors.add("A horse cannot be its own parent");
-        }
+      // Check that horse is not its own parent
+      if (horseId != null && horseId.equals(parentId)) {
+        validationErrors.add("A horse cannot be its own parent");
+      }
 
-        // Check that parent is older than child
-        if (parent.dateOfBirth().isAfter(horseBirthDate) || parent.dateOfBirth().isEqual(horseBirthDate)) {
-          validationErrors.add("Parent must be born before the child");
-        }
+      // Check that parent is not a descendant of the horse, which would make the horse its own ancestor
+      if (horseId != null && pedigreeGraph.isAncestor(horseId, parentId)) {
+        validationErrors.add("A horse cannot have one of its descendants as parent");
+      }
 
-        // Track parent sexes
-        if (i == 0) {
-          parent1Sex = parent.sex();
-        } else if (i == 1) {
-          parent2Sex = parent.sex();
-        }
+      // Check that parent is older than child
+      if (horseBirthDate != null && !parent.dateOfBirth().isBefore(horseBirthDate)) {
+        validationErrors.add("Parent must be born before the child");
+      }
 
-      } catch (NotFoundException e) {
-        validationErrors.add("Parent horse with ID " + parentId + " does not exist");
+      // Track parent sexes
+      if (i == 0) {
+        parent1Sex = parent.sex();
+      } else if (i == 1) {
+        parent2Sex = parent.sex();
       }
     }
 
@@ -0,0 +1,204 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseInbreedingDto;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.service.InbreedingService;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Implementation of {@link InbreedingService} computing the coefficient of inbreeding from the {@link PedigreeGraph}.
+ *
+ * <p>
+ * The coefficient of inbreeding of a horse is the kinship of its parents, which is computed recursively:
+ * the kinship of a horse with itself is {@code (1 + F) / 2}, where {@code F} is its own coefficient of inbreeding,
+ * and the kinship of two different horses is the mean kinship of the parents of one of them with the other one.
+ * The horse expanded is always one that cannot be an ancestor of the other.
+ * Every pair of horses is computed once, and pairs without a common ancestor are known to be unrelated
+ * without recursing, so pedigrees with heavy collapse do not lead to an exponential number of paths.
+ * </p>
+ */
+@Service
+public class InbreedingServiceImpl implements InbreedingService {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int MAX_GENERATIONS = 30;
+  private static final int UNKNOWN = -1;
+
+  private final HorseDao dao;
+  private final PedigreeGraph pedigreeGraph;
+
+  public InbreedingServiceImpl(HorseDao dao, PedigreeGraph pedigreeGraph) {
+    this.dao = dao;
+    this.pedigreeGraph = pedigreeGraph;
+  }
+
+  @Override
+  public HorseInbreedingDto getInbreeding(long id, int generations) throws NotFoundException, ValidationException {
+    LOG.trace("getInbreeding({}, {})", id, generations);
+
+    if (generations < 1 || generations > MAX_GENERATIONS) {
+      throw new ValidationException("Generations must be between 1 and " + MAX_GENERATIONS,
+          List.of("generations must be between 1 and %d, but was %d".formatted(MAX_GENERATIONS, generations)));
+    }
+
+    // Make sure the horse exists
+    dao.getById(id);
+
+    return new HorseInbreedingDto(id, generations, new Pedigree(id, generations).coefficientOfInbreeding());
+  }
+
+  /**
+   * The ancestors of a horse up to a number of generations, numbered densely for the kinship computation.
+   */
+  private class Pedigree {
+    private final int[] firstParents;
+    private final int[] secondParents;
+    // Position in an order listing every horse before its ancestors
+    private final int[] positions;
+    // The common ancestors of the parents of the root, that each horse is or descends from
+    private final BitSet[] commonAncestors;
+    private final Map<Long, Double> kinships = new HashMap<>();
+
+    Pedigree(long rootId, int generations) {
+      // Number the ancestors breadth-first, only horses within the given generations get their parents linked
+      Map<Long, Integer> indexes = new HashMap<>();
+      List<Long> horseIds = new ArrayList<>();
+      List<int[]> parentIndexes = new ArrayList<>();
+      indexes.put(rootId, 0);
+      horseIds.add(rootId);
+      parentIndexes.add(new int[0]);
+      List<Integer> generation = List.of(0);
+      for (int depth = 0; depth < generations && !generation.isEmpty(); depth++) {
+        List<Integer> nextGeneration = new ArrayList<>();
+        for (int index : generation) {
+          long[] parentIds = pedigreeGraph.getParentIds(horseIds.get(index));
+          int[] parents = new int[parentIds.length];
+          for (int i = 0; i < parentIds.length; i++) {
+            Integer parentIndex = indexes.get(parentIds[i]);
+            if (parentIndex == null) {
+              parentIndex = horseIds.size();
+              indexes.put(parentIds[i], parentIndex);
+              horseIds.add(parentIds[i]);
+              parentIndexes.add(new int[0]);
+              nextGeneration.add(parentIndex);
+            }
+            parents[i] = parentIndex;
+          }
+          parentIndexes.set(index, parents);
+        }
+        generation = nextGeneration;
+      }
+
+      int size = horseIds.size();
+      firstParents = new int[size];
+      secondParents = new int[size];
+      int[] childCounts = new int[size];
+      for (int index = 0; index < size; index++) {
+        int[] parents = parentIndexes.get(index);
+        firstParents[index] = parents.length > 0 ? parents[0] : UNKNOWN;
+        secondParents[index] = parents.length > 1 ? parents[1] : UNKNOWN;
+        for (int parent : parents) {
+          childCounts[parent]++;
+        }
+      }
+
+      // Order the horses so that every horse comes before its ancestors, starting with the root
+      int[] order = new int[size];
+      positions = new int[size];
+      int ordered = 0;
+      int next = 0;
+      order[ordered++] = 0;
+      while (next < ordered) {
+        int index = order[next];
+        positions[index] = next++;
+        for (int parent : parentIndexes.get(index)) {
+          if (--childCounts[parent] == 0) {
+            order[ordered++] = parent;
+          }
+        }
+      }
+
+      // Only ancestors of both parents of the root can make two horses related
+      BitSet ancestorsOfFirst = ancestorsOf(firstParents[0], size);
+      BitSet ancestorsOfSecond = ancestorsOf(secondParents[0], size);
+      ancestorsOfFirst.and(ancestorsOfSecond);
+      int[] commonIndexes = new int[size];
+      int commonCount = 0;
+      for (int index = ancestorsOfFirst.nextSetBit(0); index >= 0; index = ancestorsOfFirst.nextSetBit(index + 1)) {
+        commonIndexes[index] = ++commonCount;
+      }
+      commonAncestors = new BitSet[size];
+      for (int position = size - 1; position >= 0; position--) {
+        int index = order[position];
+        BitSet bits = new BitSet(commonCount);
+        if (commonIndexes[index] > 0) {
+          bits.set(commonIndexes[index] - 1);
+        }
+        for (int parent : parentIndexes.get(index)) {
+          bits.or(commonAncestors[parent]);
+        }
+        commonAncestors[index] = bits;
+      }
+    }
+
+    private BitSet ancestorsOf(int index, int size) {
+      BitSet ancestors = new BitSet(size);
+      if (index == UNKNOWN) {
+        return ancestors;
+      }
+      int[] pending = new int[size];
+      int pendingCount = 0;
+      pending[pendingCount++] = index;
+      ancestors.set(index);
+      while (pendingCount > 0) {
+        int current = pending[--pendingCount];
+        for (int parent : new int[] {firstParents[current], secondParents[current]}) {
+          if (parent != UNKNOWN && !ancestors.get(parent)) {
+            ancestors.set(parent);
+            pending[pendingCount++] = parent;
+          }
+        }
+      }
+      return ancestors;
+    }
+
+    double coefficientOfInbreeding() {
+      return kinship(firstParents[0], secondParents[0]);
+    }
+
+    /**
+     * Compute the coefficient of kinship of two horses,
+     * the probability that two alleles drawn at random from them are identical by descent.
+     */
+    private double kinship(int first, int second) {
+      if (first == UNKNOWN || second == UNKNOWN) {
+        return 0;
+      }
+      if (first == second) {
+        return (1 + kinship(firstParents[first], secondParents[first])) / 2;
+      }
+      if (!commonAncestors[first].intersects(commonAncestors[second])) {
+        return 0;
+      }
+      long key = ((long) Math.min(first, second) << 32) | Math.max(first, second);
+      Double kinship = kinships.get(key);
+      if (kinship == null) {
+        // Expand the horse listed first, as it cannot be an ancestor of the other one
+        int expanded = positions[first] < positions[second] ? first : second;
+        int other = expanded == first ? second : first;
+        kinship = (kinship(firstParents[expanded], other) + kinship(secondParents[expanded], other)) / 2;
+        kinships.put(key, kinship);
+      }
+      return kinship;
+    }
+  }
+}
@@ -27,12 +27,18 @@ public class OwnerServiceImpl implements OwnerService {
 
   private final OwnerDao dao;
   private final OwnerMapper mapper;
+  private final HorseSearchCache horseSearchCache;
 
+  /**
+   * Constructs the {@code OwnerServiceImpl} with its DAO and mapper, and the horse search cache it invalidates on writes.
+   */
   public OwnerServiceImpl(
       OwnerDao dao,
-      OwnerMapper mapper) {
+      OwnerMapper mapper,
+      HorseSearchCache horseSearchCache) {
     this.dao = dao;
     this.mapper = mapper;
+    this.horseSearchCache = horseSearchCache;
   }
 
   /**
@@ -94,7 +100,12 @@ public class OwnerServiceImpl implements OwnerService {
   public OwnerDto create(OwnerCreateDto newOwner) throws ValidationException {
     LOG.trace("create({})", newOwner);
     validateForCreate(newOwner);
-    return mapper.entityToDto(dao.create(newOwner));
+    try {
+      return mapper.entityToDto(dao.create(newOwner));
+    } finally {
+      // Searches for horses by owner name may match the new owner
+      horseSearchCache.invalidate();
+    }
   }
 
   /**
@@ -0,0 +1,449 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Parent;
+import at.ac.tuwien.sepr.assignment.individual.persistence.ParentDao;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory copy of all parent relationships, so pedigree operations do not have to query the persistent data store.
+ * It is loaded once at startup and has to be kept up to date by every operation changing parent relationships.
+ *
+ * <p>
+ * The relationships are stored without boxing in an open-addressing hash table with linear probing:
+ * three parallel {@code long} arrays hold the ID of a horse and the IDs of its (up to two) parents.
+ * Only horses with at least one parent take up a slot, the table is at most half full.
+ * The children of every parent are indexed in a second table, whose slots hold the IDs of a parent and of one of its children.
+ * All children of a parent share the probe sequence starting at the home slot of the parent,
+ * so they are found without scanning the whole table.
+ * Together this amounts to 24 bytes per horse slot and 16 bytes per child slot,
+ * i.e. 112 MiB for a million horses with two parents each.
+ * </p>
+ */
+@Component
+public class PedigreeGraph implements SmartInitializingSingleton {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  // Generated IDs start at 1, so 0 can mark free slots and missing parents
+  private static final long NO_HORSE = 0L;
+  private static final long[] NO_PARENTS = new long[0];
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final ParentDao parentDao;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private long[] horseIds;
+  private long[] firstParentIds;
+  private long[] secondParentIds;
+  private int size;
+  // Index of the children of every parent, one slot per parent relationship
+  private long[] childParentIds;
+  private long[] childIds;
+  private int childCount;
+
+  /**
+   * Constructs an empty {@code PedigreeGraph}, which is loaded from the given {@link ParentDao} once all beans are created.
+   */
+  public PedigreeGraph(ParentDao parentDao) {
+    this.parentDao = parentDao;
+    allocate(INITIAL_CAPACITY);
+    allocateChildren(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Loads all parent relationships from the persistent data store, after all beans have been created.
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    load();
+  }
+
+  /**
+   * Replaces the content of the graph with all parent relationships in the persistent data store.
+   */
+  public void load() {
+    LOG.trace("load()");
+    var parents = parentDao.getAll();
+    lock.writeLock().lock();
+    try {
+      allocate(INITIAL_CAPACITY);
+      allocateChildren(INITIAL_CAPACITY);
+      // Relationships are ordered by horse ID and parent ID, so the first parent is always added first
+      for (Parent parent : parents) {
+        int slot = slotOf(parent.horseId());
+        if (slot < 0) {
+          put(parent.horseId(), parent.parentId(), NO_HORSE);
+        } else {
+          secondParentIds[slot] = parent.parentId();
+        }
+        addChild(parent.parentId(), parent.horseId());
+      }
+      LOG.info("Loaded pedigree graph with {} horses having parents", size);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Get the IDs of the parents of a horse.
+   *
+   * @param horseId the ID of the horse
+   * @return the IDs of the parents of the horse in ascending order, empty if the horse has none
+   */
+  public long[] getParentIds(long horseId) {
+    lock.readLock().lock();
+    try {
+      int slot = slotOf(horseId);
+      if (slot < 0) {
+        return NO_PARENTS;
+      }
+      return secondParentIds[slot] == NO_HORSE
+          ? new long[] {firstParentIds[slot]}
+          : new long[] {firstParentIds[slot], secondParentIds[slot]};
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Get the IDs of the children of a horse.
+   *
+   * @param parentId the ID of the horse
+   * @return the IDs of the children of the horse in no particular order, empty if the horse has none
+   */
+  public long[] getChildIds(long parentId) {
+    lock.readLock().lock();
+    try {
+      return childrenOf(parentId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Check whether a horse is an ancestor of another horse, by walking up the parents of the possible descendant.
+   *
+   * @param ancestorId the ID of the possible ancestor
+   * @param descendantId the ID of the possible descendant
+   * @return true, if the horse with ID {@code ancestorId} is an ancestor of the horse with ID {@code descendantId}
+   */
+  public boolean isAncestor(long ancestorId, long descendantId) {
+    lock.readLock().lock();
+    try {
+      var pending = new long[16];
+      int pendingCount = 0;
+      var visited = new IdSet();
+      pending[pendingCount++] = descendantId;
+      while (pendingCount > 0) {
+        int slot = slotOf(pending[--pendingCount]);
+        if (slot < 0) {
+          continue;
+        }
+        for (long parentId : new long[] {firstParentIds[slot], secondParentIds[slot]}) {
+          if (parentId == ancestorId) {
+            return true;
+          }
+          if (parentId != NO_HORSE && visited.add(parentId)) {
+            if (pendingCount == pending.length) {
+              pending = Arrays.copyOf(pending, pendingCount * 2);
+            }
+            pending[pendingCount++] = parentId;
+          }
+        }
+      }
+      return false;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Set the parents of a horse, replacing its previous parents.
+   *
+   * @param horseId the ID of the horse
+   * @param parentIds the IDs of the parents (0, 1 or 2)
+   */
+  public void setParents(long horseId, Collection<Long> parentIds) {
+    LOG.trace("setParents({}, {})", horseId, parentIds);
+    var sortedParentIds = parentIds.stream().mapToLong(Long::longValue).sorted().toArray();
+    lock.writeLock().lock();
+    try {
+      int slot = slotOf(horseId);
+      if (slot >= 0) {
+        removeChild(firstParentIds[slot], horseId);
+        removeChild(secondParentIds[slot], horseId);
+      }
+      if (sortedParentIds.length == 0) {
+        if (slot >= 0) {
+          removeSlot(slot);
+        }
+      } else {
+        put(horseId, sortedParentIds[0], sortedParentIds.length > 1 ? sortedParentIds[1] : NO_HORSE);
+        for (long parentId : sortedParentIds) {
+          addChild(parentId, horseId);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove a horse from the graph, together with all relationships where it is the parent.
+   *
+   * @param horseId the ID of the horse to remove
+   */
+  public void removeHorse(long horseId) {
+    LOG.trace("removeHorse({})", horseId);
+    lock.writeLock().lock();
+    try {
+      int slot = slotOf(horseId);
+      if (slot >= 0) {
+        removeChild(firstParentIds[slot], horseId);
+        removeChild(secondParentIds[slot], horseId);
+        removeSlot(slot);
+      }
+      for (long childId : childrenOf(horseId)) {
+        removeChild(horseId, childId);
+        int childSlot = slotOf(childId);
+        long otherParentId = firstParentIds[childSlot] == horseId ? secondParentIds[childSlot] : firstParentIds[childSlot];
+        if (otherParentId == NO_HORSE) {
+          removeSlot(childSlot);
+        } else {
+          firstParentIds[childSlot] = otherParentId;
+          secondParentIds[childSlot] = NO_HORSE;
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Get the number of horses with at least one parent.
+   *
+   * @return the number of horses in the graph
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Get the memory taken up by the hash tables of the graph.
+   *
+   * @return the size of the arrays backing the graph and its index of children in bytes
+   */
+  public long footprintInBytes() {
+    lock.readLock().lock();
+    try {
+      return (3L * horseIds.length + 2L * childIds.length) * Long.BYTES;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void allocate(int capacity) {
+    horseIds = new long[capacity];
+    firstParentIds = new long[capacity];
+    secondParentIds = new long[capacity];
+    size = 0;
+  }
+
+  private void allocateChildren(int capacity) {
+    childParentIds = new long[capacity];
+    childIds = new long[capacity];
+    childCount = 0;
+  }
+
+  private static int hash(long horseId) {
+    long hash = horseId * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+  /**
+   * Find the slot of a horse.
+   *
+   * @param horseId the ID of the horse
+   * @return the slot of the horse, or {@code -(free slot) - 1} if the horse is not in the table
+   */
+  private int slotOf(long horseId) {
+    int mask = horseIds.length - 1;
+    int slot = hash(horseId) & mask;
+    while (horseIds[slot] != NO_HORSE) {
+      if (horseIds[slot] == horseId) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -slot - 1;
+  }
+
+  private void put(long horseId, long firstParentId, long secondParentId) {
+    int slot = slotOf(horseId);
+    if (slot < 0) {
+      if (2 * (size + 1) > horseIds.length) {
+        resize(horseIds.length * 2);
+        slot = slotOf(horseId);
+      }
+      slot = -slot - 1;
+      horseIds[slot] = horseId;
+      size++;
+    }
+    firstParentIds[slot] = firstParentId;
+    secondParentIds[slot] = secondParentId;
+  }
+
+  private void resize(int capacity) {
+    var oldHorseIds = horseIds;
+    var oldFirstParentIds = firstParentIds;
+    var oldSecondParentIds = secondParentIds;
+    allocate(capacity);
+    for (int i = 0; i < oldHorseIds.length; i++) {
+      if (oldHorseIds[i] != NO_HORSE) {
+        put(oldHorseIds[i], oldFirstParentIds[i], oldSecondParentIds[i]);
+      }
+    }
+  }
+
+  /**
+   * Free a slot, moving back entries of the same probe sequence, so that no lookup stops early at the freed slot.
+   */
+  private void removeSlot(int slot) {
+    int mask = horseIds.length - 1;
+    int free = slot;
+    int next = (free + 1) & mask;
+    while (horseIds[next] != NO_HORSE) {
+      int home = hash(horseIds[next]) & mask;
+      // The entry may move to the free slot, if that does not lie before its home slot in the probe sequence
+      if (((next - home) & mask) >= ((next - free) & mask)) {
+        horseIds[free] = horseIds[next];
+        firstParentIds[free] = firstParentIds[next];
+        secondParentIds[free] = secondParentIds[next];
+        free = next;
+      }
+      next = (next + 1) & mask;
+    }
+    horseIds[free] = NO_HORSE;
+    firstParentIds[free] = NO_HORSE;
+    secondParentIds[free] = NO_HORSE;
+    size--;
+  }
+
+  /**
+   * Collect the children of a parent from the probe sequence starting at the home slot of the parent.
+   */
+  private long[] childrenOf(long parentId) {
+    var children = NO_PARENTS;
+    int count = 0;
+    int mask = childIds.length - 1;
+    for (int slot = hash(parentId) & mask; childIds[slot] != NO_HORSE; slot = (slot + 1) & mask) {
+      if (childParentIds[slot] == parentId) {
+        if (count == children.length) {
+          children = Arrays.copyOf(children, Math.max(4, count * 2));
+        }
+        children[count++] = childIds[slot];
+      }
+    }
+    return count == children.length ? children : Arrays.copyOf(children, count);
+  }
+
+  private void addChild(long parentId, long childId) {
+    if (2 * (childCount + 1) > childIds.length) {
+      var oldChildParentIds = childParentIds;
+      var oldChildIds = childIds;
+      allocateChildren(childIds.length * 2);
+      for (int i = 0; i < oldChildIds.length; i++) {
+        if (oldChildIds[i] != NO_HORSE) {
+          addChild(oldChildParentIds[i], oldChildIds[i]);
+        }
+      }
+    }
+    int mask = childIds.length - 1;
+    int slot = hash(parentId) & mask;
+    while (childIds[slot] != NO_HORSE) {
+      slot = (slot + 1) & mask;
+    }
+    childParentIds[slot] = parentId;
+    childIds[slot] = childId;
+    childCount++;
+  }
+
+  /**
+   * Remove a child from the index, moving back entries of the same probe sequence like {@link #removeSlot(int)}.
+   * Nothing is removed for a missing parent.
+   */
+  private void removeChild(long parentId, long childId) {
+    if (parentId == NO_HORSE) {
+      return;
+    }
+    int mask = childIds.length - 1;
+    int free = hash(parentId) & mask;
+    while (childIds[free] != NO_HORSE && (childParentIds[free] != parentId || childIds[free] != childId)) {
+      free = (free + 1) & mask;
+    }
+    if (childIds[free] == NO_HORSE) {
+      return;
+    }
+    int next = (free + 1) & mask;
+    while (childIds[next] != NO_HORSE) {
+      int home = hash(childParentIds[next]) & mask;
+      if (((next - home) & mask) >= ((next - free) & mask)) {
+        childParentIds[free] = childParentIds[next];
+        childIds[free] = childIds[next];
+        free = next;
+      }
+      next = (next + 1) & mask;
+    }
+    childParentIds[free] = NO_HORSE;
+    childIds[free] = NO_HORSE;
+    childCount--;
+  }
+
+  /**
+   * Set of horse IDs without boxing, an open-addressing hash table with linear probing that is at most half full.
+   */
+  private static final class IdSet {
+    private long[] ids = new long[16];
+    private int size;
+
+    /**
+     * Add an ID to the set.
+     *
+     * @param id the ID, must not be {@link #NO_HORSE}
+     * @return true, if the ID was not yet contained in the set
+     */
+    boolean add(long id) {
+      if (2 * (size + 1) > ids.length) {
+        var oldIds = ids;
+        ids = new long[oldIds.length * 2];
+        size = 0;
+        for (long oldId : oldIds) {
+          if (oldId != NO_HORSE) {
+            add(oldId);
+          }
+        }
+      }
+      int mask = ids.length - 1;
+      int slot = hash(id) & mask;
+      while (ids[slot] != NO_HORSE) {
+        if (ids[slot] == id) {
+          return false;
+        }
+        slot = (slot + 1) & mask;
+      }
+      ids[slot] = id;
+      size++;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package at.ac.tuwien.sepr.assignment.individual.type;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Enum representing the fields of a horse, that clients can request a sparse fieldset of.
+ * The ID is part of every fieldset.
+ */
+public enum HorseField {
+  ID("id", "id"),
+  NAME("name", "name"),
+  DESCRIPTION("description", "description"),
+  DATE_OF_BIRTH("dateOfBirth", "date_of_birth"),
+  SEX("sex", "sex"),
+  OWNER("owner", "owner_id"),
+  // Only part of the details of a horse
+  PARENTS("parents", null);
+
+  private final String jsonName;
+  private final String column;
+
+  HorseField(String jsonName, String column) {
+    this.jsonName = jsonName;
+    this.column = column;
+  }
+
+  /**
+   * Get the name of the field in responses and requests.
+   *
+   * @return the name of the field
+   */
+  public String jsonName() {
+    return jsonName;
+  }
+
+  /**
+   * Get the column of the horse table the field is loaded from.
+   *
+   * @return the column, or null if the field is not a column of the horse table
+   */
+  public String column() {
+    return column;
+  }
+
+  /**
+   * Parses a comma-separated list of field names, as given by clients.
+   *
+   * @param fields the field names, like {@code id,name,sex}
+   * @return the fields, always including the ID
+   * @throws IllegalArgumentException if a field name is unknown
+   */
+  public static Set<HorseField> parse(String fields) {
+    Set<HorseField> result = EnumSet.of(ID);
+    for (var name : fields.split(",")) {
+      var stripped = name.strip();
+      if (stripped.isEmpty()) {
+        continue;
+      }
+      result.add(EnumSet.allOf(HorseField.class).stream()
+          .filter(field -> field.jsonName.equals(stripped))
+          .findFirst()
+          .orElseThrow(() -> new IllegalArgumentException("Unknown field of horses: " + stripped)));
+    }
+    return result;
+  }
+}
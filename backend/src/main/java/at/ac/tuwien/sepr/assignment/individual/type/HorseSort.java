@@ -0,0 +1,11 @@
+package at.ac.tuwien.sepr.assignment.individual.type;
+
+/**
+ * Enum representing the orders horses can be listed in.
+ * Every order is total, ties are broken by the ID of the horses.
+ */
+public enum HorseSort {
+  ID,
+  NAME,
+  DATE_OF_BIRTH
+}
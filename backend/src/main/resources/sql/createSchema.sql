@@ -18,6 +18,9 @@ CREATE TABLE IF NOT EXISTS horse
   FOREIGN KEY (owner_id) REFERENCES owner(id)
 );
 
+CREATE INDEX IF NOT EXISTS horse_date_of_birth_id ON horse (date_of_birth, id);
+CREATE INDEX IF NOT EXISTS horse_name ON horse (name, id);
+
 CREATE TABLE IF NOT EXISTS horse_parent
 (
   horse_id BIGINT NOT NULL,
@@ -27,3 +30,5 @@ CREATE TABLE IF NOT EXISTS horse_parent
   FOREIGN KEY (parent_id) REFERENCES horse(id),
   CHECK (horse_id != parent_id)
 );
+
+CREATE INDEX IF NOT EXISTS horse_parent_parent ON horse_parent (parent_id, horse_id);
@@ -0,0 +1,72 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link Bm25Index}, ensuring texts are ranked by relevance and the bounded selection keeps the best texts.
+ */
+public class Bm25IndexTest {
+
+  /**
+   * Tests that texts matching more and rarer terms, and shorter texts, rank higher, and that changes are reflected.
+   */
+  @Test
+  public void rankingReflectsRelevanceAndChanges() {
+    Bm25Index index = new Bm25Index();
+    index.put(1L, "Grand champion racehorse, sire of many winners");
+    index.put(2L, "Powerful stallion with championship pedigree");
+    index.put(3L, "Champion mare");
+    index.put(4L, "Gentle mare");
+
+    assertThat(index.top("champion SIRE", 10))
+        .extracting(Bm25Index.Hit::id)
+        .containsExactly(1L, 3L);
+    assertThat(index.top("mare", 10))
+        .extracting(Bm25Index.Hit::id)
+        .containsExactly(3L, 4L);
+    assertThat(index.top("unknown", 10)).isEmpty();
+
+    index.put(3L, "Gentle champion stallion");
+    index.remove(1L);
+
+    assertThat(index.top("champion sire", 10))
+        .extracting(Bm25Index.Hit::id)
+        .containsExactly(3L);
+    assertThat(index.size()).isEqualTo(3);
+  }
+
+  /**
+   * Tests on random texts that the best texts selected for a limit are the first texts of the complete ranking.
+   */
+  @Test
+  public void topTextsArePrefixOfCompleteRanking() {
+    Random random = new Random(4711);
+    Bm25Index index = new Bm25Index();
+    for (long id = 1; id <= 500; id++) {
+      index.put(id, randomText(random, 1 + random.nextInt(30)));
+    }
+
+    for (int i = 0; i < 50; i++) {
+      String query = randomText(random, 1 + random.nextInt(3));
+      List<Bm25Index.Hit> ranking = index.top(query, Integer.MAX_VALUE);
+      for (int limit : new int[] {1, 5, 20}) {
+        assertThat(index.top(query, limit)).isEqualTo(ranking.subList(0, Math.min(limit, ranking.size())));
+      }
+      for (int j = 1; j < ranking.size(); j++) {
+        assertThat(ranking.get(j).score()).isLessThanOrEqualTo(ranking.get(j - 1).score());
+      }
+    }
+  }
+
+  private static String randomText(Random random, int words) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      text.append("word").append(random.nextInt(40)).append(' ');
+    }
+    return text.toString();
+  }
+}
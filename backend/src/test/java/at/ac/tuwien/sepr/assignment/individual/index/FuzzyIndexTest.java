@@ -0,0 +1,92 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link FuzzyIndex}, ensuring the trigram filter never loses a text within the maximum distance.
+ */
+public class FuzzyIndexTest {
+
+  /**
+   * Tests the optimal string alignment distance, where a transposition counts as a single edit.
+   */
+  @Test
+  public void distanceCountsTranspositionsOnce() {
+    assertThat(FuzzyIndex.distance("thunder", "thunder", 2)).isEqualTo(0);
+    assertThat(FuzzyIndex.distance("thundr", "thunder", 2)).isEqualTo(1);
+    assertThat(FuzzyIndex.distance("lightening", "lightning", 2)).isEqualTo(1);
+    assertThat(FuzzyIndex.distance("rokcet", "rocket", 2)).isEqualTo(1);
+    assertThat(FuzzyIndex.distance("ca", "abc", 5)).isEqualTo(3);
+    assertThat(FuzzyIndex.distance("comet", "storm", 2)).isGreaterThan(2);
+  }
+
+  /**
+   * Tests that misspelled names are found, ranked by distance, and that changes are reflected.
+   */
+  @Test
+  public void searchFindsMisspelledNames() {
+    FuzzyIndex index = new FuzzyIndex();
+    index.put(1L, "Thunder");
+    index.put(2L, "Lightning");
+    index.put(3L, "Thunders");
+    index.put(4L, "Wonder");
+
+    assertThat(index.search("Thundr", 1)).containsExactly(new FuzzyIndex.Match(1L, 1));
+    assertThat(index.search("THUNDERS", 2)).containsExactly(new FuzzyIndex.Match(3L, 0), new FuzzyIndex.Match(1L, 1));
+    assertThat(index.search("Lightening", FuzzyIndex.defaultMaxDistance("Lightening")))
+        .containsExactly(new FuzzyIndex.Match(2L, 1));
+
+    index.put(1L, "Blaze");
+    index.remove(3L);
+
+    assertThat(index.search("Thundr", 1)).isEmpty();
+    assertThat(index.size()).isEqualTo(3);
+  }
+
+  /**
+   * Tests on random texts over a small alphabet, that the matches are exactly the texts within the distance.
+   */
+  @Test
+  public void searchMatchesScan() {
+    Random random = new Random(4711);
+    FuzzyIndex index = new FuzzyIndex();
+    Map<Long, String> texts = new HashMap<>();
+    for (int step = 0; step < 5000; step++) {
+      long id = random.nextInt(1000);
+      if (random.nextInt(5) == 0) {
+        index.remove(id);
+        texts.remove(id);
+      } else {
+        String text = randomText(random, 1 + random.nextInt(10));
+        index.put(id, text);
+        texts.put(id, text);
+      }
+    }
+
+    for (int i = 0; i < 300; i++) {
+      String query = randomText(random, 1 + random.nextInt(10));
+      int maxDistance = random.nextInt(FuzzyIndex.MAX_DISTANCE + 1);
+      List<FuzzyIndex.Match> expected = texts.entrySet().stream()
+          .map(entry -> new FuzzyIndex.Match(entry.getKey(), FuzzyIndex.distance(query, entry.getValue(), maxDistance)))
+          .filter(match -> match.distance() <= maxDistance)
+          .sorted(Comparator.comparingInt(FuzzyIndex.Match::distance).thenComparingLong(FuzzyIndex.Match::id))
+          .toList();
+      assertThat(index.search(query, maxDistance)).isEqualTo(expected);
+    }
+  }
+
+  private static String randomText(Random random, int length) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      text.append((char) ('a' + random.nextInt(4)));
+    }
+    return text.toString();
+  }
+}
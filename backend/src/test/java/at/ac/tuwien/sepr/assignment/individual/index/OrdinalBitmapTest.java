@@ -0,0 +1,91 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link OrdinalBitmap} and {@link BitmapIndex}, ensuring the chunks stay correct when switching between arrays and bitmaps.
+ */
+public class OrdinalBitmapTest {
+
+  /**
+   * Tests on random sets, dense enough for some chunks to become bitmaps, that the bitmaps behave like sorted sets.
+   */
+  @Test
+  @Tag("benchmark")
+  public void operationsMatchSortedSets() {
+    Random random = new Random(4711);
+    for (int round = 0; round < 20; round++) {
+      OrdinalBitmap first = new OrdinalBitmap();
+      OrdinalBitmap second = new OrdinalBitmap();
+      TreeSet<Integer> firstExpected = new TreeSet<>();
+      TreeSet<Integer> secondExpected = new TreeSet<>();
+      // Up to three chunks, with up to 8000 ordinals in a chunk
+      int bound = 3 << 16;
+      int count = random.nextInt(24000);
+      for (int i = 0; i < count; i++) {
+        int ordinal = random.nextInt(bound);
+        first.add(ordinal);
+        firstExpected.add(ordinal);
+        ordinal = random.nextInt(bound / 2);
+        second.add(ordinal);
+        secondExpected.add(ordinal);
+      }
+      // Removing most ordinals again turns bitmaps back into arrays
+      for (int i = 0; i < count; i++) {
+        int ordinal = random.nextInt(bound);
+        if (random.nextInt(4) > 0) {
+          first.remove(ordinal);
+          firstExpected.remove(ordinal);
+        }
+      }
+
+      assertThat(first.cardinality()).isEqualTo(firstExpected.size());
+      assertThat(first.toArray()).containsExactly(toArray(firstExpected));
+      for (int i = 0; i < 100; i++) {
+        int ordinal = random.nextInt(bound);
+        assertThat(first.contains(ordinal)).isEqualTo(firstExpected.contains(ordinal));
+      }
+
+      TreeSet<Integer> intersection = new TreeSet<>(firstExpected);
+      intersection.retainAll(secondExpected);
+      assertThat(first.and(second).toArray()).containsExactly(toArray(intersection));
+      TreeSet<Integer> union = new TreeSet<>(firstExpected);
+      union.addAll(secondExpected);
+      assertThat(first.or(second).toArray()).containsExactly(toArray(union));
+    }
+  }
+
+  /**
+   * Tests that a bitmap index returns the ordinals of single values, of several values and of value ranges.
+   */
+  @Test
+  public void indexUnitesBitmapsOfValues() {
+    BitmapIndex<Integer> years = new BitmapIndex<>();
+    years.put(0, 2000);
+    years.put(1, 2005);
+    years.put(2, 2010);
+    years.put(3, 2005);
+    years.put(4, null);
+
+    assertThat(years.anyOf(List.of(2005)).toArray()).containsExactly(1, 3);
+    assertThat(years.anyOf(List.of(2000, 2010, 1999)).toArray()).containsExactly(0, 2);
+    assertThat(years.range(2001, 2010).toArray()).containsExactly(1, 2, 3);
+    assertThat(years.range(null, 2005).toArray()).containsExactly(0, 1, 3);
+
+    years.put(3, 2010);
+    years.remove(0);
+
+    assertThat(years.range(null, null).toArray()).containsExactly(1, 2, 3);
+    assertThat(years.anyOf(List.of(2010)).toArray()).containsExactly(2, 3);
+  }
+
+  private static int[] toArray(TreeSet<Integer> ordinals) {
+    return ordinals.stream().mapToInt(Integer::intValue).toArray();
+  }
+}
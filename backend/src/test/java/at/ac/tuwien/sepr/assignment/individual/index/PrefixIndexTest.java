@@ -0,0 +1,126 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link PrefixIndex}, ensuring completions are ranked by prefix, then word prefix, and reflect changes.
+ */
+public class PrefixIndexTest {
+
+  /**
+   * Tests that names starting with the prefix rank before names with a word starting with it.
+   */
+  @Test
+  public void completionsRankPrefixBeforeWordPrefix() {
+    PrefixIndex index = new PrefixIndex();
+    index.put(1L, "Morning Star");
+    index.put(2L, "Starlight");
+    index.put(3L, "Star");
+    index.put(4L, "Lone Star Dancer");
+    index.put(5L, "Mustard");
+
+    assertThat(index.complete("STAR", 5)).containsExactly(3L, 2L, 1L, 4L);
+    assertThat(index.complete("star", 2)).containsExactly(3L, 2L);
+    assertThat(index.complete("d", 5)).containsExactly(4L);
+
+    index.put(3L, "Comet");
+    index.remove(2L);
+
+    assertThat(index.complete("star", 5)).containsExactly(1L, 4L);
+    assertThat(index.size()).isEqualTo(4);
+  }
+
+  /**
+   * Tests that completions within a group are ordered character by character from the matching word on, not by length,
+   * and that equal keys are ordered by ID.
+   */
+  @Test
+  public void completionsRankByKeyOrder() {
+    PrefixIndex index = new PrefixIndex();
+    index.put(1L, "Starz");
+    index.put(2L, "Starlight Express");
+    index.put(3L, "Star");
+    index.put(4L, "Star");
+    index.put(5L, "Zephyr Starburst");
+    index.put(6L, "Alpha Starz");
+
+    // "starlight express" ranks before the shorter "starz", "star" before the keys it is a prefix of,
+    // and "Zephyr Starburst" before "Alpha Starz", as "starburst" is smaller than "starz"
+    assertThat(index.complete("star", 6)).containsExactly(3L, 4L, 2L, 1L, 5L, 6L);
+    assertThat(index.complete("starz", 6)).containsExactly(1L, 6L);
+  }
+
+  /**
+   * Tests on random texts, that are added, replaced and removed, that completions match a scan over all texts.
+   */
+  @Test
+  public void completionsMatchScan() {
+    Random random = new Random(4711);
+    PrefixIndex index = new PrefixIndex();
+    Map<Long, String> texts = new HashMap<>();
+    for (int step = 0; step < 20000; step++) {
+      long id = random.nextInt(3000);
+      if (random.nextInt(5) == 0) {
+        index.remove(id);
+        texts.remove(id);
+      } else {
+        String text = randomText(random);
+        index.put(id, text);
+        texts.put(id, text);
+      }
+    }
+
+    for (int i = 0; i < 300; i++) {
+      String prefix = random.ints(1 + random.nextInt(2), 'a', 'e')
+          .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+          .toString();
+      assertThat(index.complete(prefix, 5)).isEqualTo(scan(texts, prefix, 5));
+    }
+  }
+
+  private static List<Long> scan(Map<Long, String> texts, String prefix, int limit) {
+    List<Map.Entry<String, Long>> starts = new ArrayList<>();
+    List<Map.Entry<String, Long>> words = new ArrayList<>();
+    texts.forEach((id, text) -> {
+      if (text.startsWith(prefix)) {
+        starts.add(Map.entry(text, id));
+      }
+      for (int offset = text.indexOf(' ') + 1; offset > 0; offset = text.indexOf(' ', offset) + 1) {
+        if (text.startsWith(prefix, offset)) {
+          words.add(Map.entry(text.substring(offset), id));
+        }
+      }
+    });
+    Comparator<Map.Entry<String, Long>> order = Map.Entry.<String, Long>comparingByKey().thenComparing(Map.Entry.comparingByValue());
+    starts.sort(order);
+    words.sort(order);
+    Set<Long> ids = new LinkedHashSet<>();
+    starts.forEach(entry -> ids.add(entry.getValue()));
+    words.forEach(entry -> ids.add(entry.getValue()));
+    return ids.stream().limit(limit).toList();
+  }
+
+  private static String randomText(Random random) {
+    StringBuilder text = new StringBuilder();
+    int words = 1 + random.nextInt(3);
+    for (int i = 0; i < words; i++) {
+      if (i > 0) {
+        text.append(' ');
+      }
+      for (int j = 0; j < 1 + random.nextInt(5); j++) {
+        text.append((char) ('a' + random.nextInt(4)));
+      }
+    }
+    return text.toString();
+  }
+}
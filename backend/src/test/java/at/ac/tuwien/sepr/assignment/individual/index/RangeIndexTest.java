@@ -0,0 +1,58 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link RangeIndex}, ensuring range lookups find exactly the ordinals with a key in the range.
+ */
+public class RangeIndexTest {
+
+  /**
+   * Tests that the bounds of a range are inclusive resp. exclusive, and that changed keys are reflected.
+   */
+  @Test
+  public void betweenIncludesStartAndExcludesEnd() {
+    RangeIndex index = new RangeIndex();
+    index.put(0, 10);
+    index.put(1, 20);
+    index.put(2, 20);
+    index.put(3, 30);
+
+    assertThat(index.between(20, 30).toArray()).containsExactly(1, 2);
+    assertThat(index.between(Long.MIN_VALUE, 20).toArray()).containsExactly(0);
+    assertThat(index.between(30, 20).toArray()).containsExactly(new int[0]);
+
+    index.put(2, 5);
+    index.remove(3);
+
+    assertThat(index.between(Long.MIN_VALUE, Long.MAX_VALUE).toArray()).containsExactly(0, 1, 2);
+    assertThat(index.between(0, 11).toArray()).containsExactly(0, 2);
+    assertThat(index.size()).isEqualTo(3);
+  }
+
+  /**
+   * Tests on random keys with many duplicates, that range lookups match a scan of all keys.
+   */
+  @Test
+  public void betweenMatchesScan() {
+    Random random = new Random(4711);
+    RangeIndex index = new RangeIndex();
+    long[] keys = new long[5000];
+    for (int i = 0; i < 20000; i++) {
+      // Every ordinal gets a key first, then random ordinals get new keys
+      int ordinal = i < keys.length ? i : random.nextInt(keys.length);
+      keys[ordinal] = random.nextInt(365);
+      index.put(ordinal, keys[ordinal]);
+    }
+    for (int i = 0; i < 100; i++) {
+      long from = random.nextInt(400) - 20;
+      long until = from + random.nextInt(60);
+      int[] expected = IntStream.range(0, keys.length).filter(ordinal -> keys[ordinal] >= from && keys[ordinal] < until).toArray();
+      assertThat(index.between(from, until).toArray()).containsExactly(expected);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package at.ac.tuwien.sepr.assignment.individual.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link TrigramIndex}, ensuring its candidates always include every text containing the query.
+ */
+public class TrigramIndexTest {
+
+  /**
+   * Tests that candidates are found case-insensitively and reflect replaced and removed texts.
+   */
+  @Test
+  public void candidatesReflectChanges() {
+    TrigramIndex index = new TrigramIndex();
+    index.put(1L, "Wendy");
+    index.put(2L, "Windy Day");
+    index.put(3L, "Thunder");
+
+    assertThat(index.candidates("WEN")).containsExactly(1L);
+    assertThat(index.candidates("ndy")).containsExactly(1L, 2L);
+    assertThat(index.candidates("xyz")).isEmpty();
+
+    index.put(1L, "Thunderbolt");
+    index.remove(2L);
+
+    assertThat(index.candidates("ndy")).isEmpty();
+    assertThat(index.candidates("thunder")).containsExactly(1L, 3L);
+    assertThat(index.size()).isEqualTo(2);
+  }
+
+  /**
+   * Tests on random texts over a small alphabet that the candidates include every text containing the query.
+   */
+  @Test
+  public void candidatesIncludeAllMatches() {
+    Random random = new Random(4711);
+    TrigramIndex index = new TrigramIndex();
+    Map<Long, String> texts = new HashMap<>();
+    for (int step = 0; step < 2000; step++) {
+      long id = random.nextInt(300);
+      if (random.nextInt(5) == 0) {
+        index.remove(id);
+        texts.remove(id);
+      } else {
+        String text = randomText(random, 3 + random.nextInt(20));
+        index.put(id, text);
+        texts.put(id, text);
+      }
+    }
+
+    for (int i = 0; i < 200; i++) {
+      String query = randomText(random, 3 + random.nextInt(3));
+      long[] candidates = index.candidates(query);
+      texts.forEach((id, text) -> {
+        if (text.toLowerCase().contains(query.toLowerCase())) {
+          assertThat(candidates).contains(id);
+        }
+      });
+      assertThat(candidates).isSorted();
+    }
+  }
+
+  private static String randomText(Random random, int length) {
+    var text = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      text.append("aAbBc ".charAt(random.nextInt(6)));
+    }
+    return text.toString();
+  }
+}
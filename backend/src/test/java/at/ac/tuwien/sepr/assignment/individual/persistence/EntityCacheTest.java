@@ -0,0 +1,45 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.EntityCache;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link EntityCache}, ensuring it stays within its size and never keeps an entity loaded before a write.
+ */
+public class EntityCacheTest {
+
+  /**
+   * Tests that the least recently used entity is evicted and that all lookups are counted.
+   */
+  @Test
+  public void evictsLeastRecentlyUsedEntity() {
+    EntityCache<String> cache = new EntityCache<>(2);
+    cache.put(1L, "one", cache.version());
+    cache.put(2L, "two", cache.version());
+    assertThat(cache.get(1L)).isEqualTo("one"); // 2 is now the least recently used
+    cache.put(3L, "three", cache.version());
+
+    assertThat(cache.get(2L)).isNull();
+    assertThat(cache.get(1L)).isEqualTo("one");
+    assertThat(cache.get(3L)).isEqualTo("three");
+    assertThat(cache.stats()).isEqualTo(new EntityCache.Stats(3, 1, 1, 2));
+  }
+
+  /**
+   * Tests that an entity loaded before an invalidation is not put into the cache afterwards.
+   */
+  @Test
+  public void rejectsEntityLoadedBeforeInvalidation() {
+    EntityCache<String> cache = new EntityCache<>(10);
+    long version = cache.version();
+    // A write to the entity finishes, while the old state is still being loaded
+    cache.invalidate(1L);
+    cache.put(1L, "before write", version);
+
+    assertThat(cache.get(1L)).isNull();
+    cache.put(1L, "after write", cache.version());
+    assertThat(cache.get(1L)).isEqualTo("after write");
+  }
+}
@@ -4,11 +4,19 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.HorseJdbcDao;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -24,6 +32,33 @@ public class HorseDaoTest {
   @Autowired
   HorseDao horseDao;
 
+  @Autowired
+  HorseJdbcDao horseJdbcDao;
+
+  private Set<Long> existingHorseIds;
+
+  /**
+   * Remembers the horses existing before each test, so the horses created by the test can be deleted after it.
+   */
+  @BeforeEach
+  public void rememberExistingHorses() {
+    existingHorseIds = horseIds();
+  }
+
+  /**
+   * Deletes the horses created by the test, so every test starts from the test data.
+   *
+   * @throws NotFoundException if a horse can not be deleted
+   */
+  @AfterEach
+  public void deleteCreatedHorses() throws NotFoundException {
+    for (long id : horseIds()) {
+      if (!existingHorseIds.contains(id)) {
+        horseDao.delete(id);
+      }
+    }
+  }
+
   /**
    * Tests that retrieving all stored horses returns at least one entry
    * and verifies that a specific horse exists in the test dataset.
@@ -101,4 +136,92 @@ public class HorseDaoTest {
         .isInstanceOf(NotFoundException.class)
         .hasMessageContaining("No horse with ID 99999 found");
   }
+
+  /**
+   * Tests that the search filters by all given criteria in the database.
+   */
+  @Test
+  public void searchFiltersByAllGivenCriteria() {
+    List<Horse> horses = horseDao.search(new HorseSearchDto("wEn", null, LocalDate.of(2013, 1, 1), Sex.FEMALE, "wilson", null));
+
+    assertThat(horses)
+        .extracting(Horse::id, Horse::name)
+        .containsExactly(tuple(2001L, "Wendy"));
+  }
+
+  /**
+   * Tests that the search treats LIKE wildcards in the search terms literally.
+   */
+  @Test
+  public void searchTreatsWildcardsLiterally() {
+    assertThat(horseDao.search(new HorseSearchDto("%", null, null, null, null, null))).isEmpty();
+    assertThat(horseDao.search(new HorseSearchDto(null, "_", null, null, null, null))).isEmpty();
+  }
+
+  /**
+   * Tests that the search returns at most {@code limit} horses.
+   */
+  @Test
+  public void searchRespectsLimit() {
+    List<Horse> horses = horseDao.search(new HorseSearchDto(null, null, null, null, null, 3));
+
+    assertThat(horses).hasSize(3);
+  }
+
+  /**
+   * Tests that fetching horses by a set of IDs returns exactly the existing ones.
+   */
+  @Test
+  public void getAllByIdReturnsOnlyExistingHorses() {
+    List<Horse> horses = horseDao.getAllById(List.of(2001L, 2002L, 99999L));
+
+    assertThat(horses)
+        .extracting(Horse::id)
+        .containsExactlyInAnyOrder(2001L, 2002L);
+    assertThat(horseDao.getAllById(List.of())).isEmpty();
+  }
+
+  /**
+   * Tests that fetching horses by more IDs than fit into a single {@code IN} list returns the existing ones in order.
+   */
+  @Test
+  public void getAllByIdSplitsLargeIdLists() {
+    List<Long> ids = LongStream.rangeClosed(1, 2500).map(i -> 1_000_000 - i).boxed().collect(Collectors.toList());
+    ids.addAll(List.of(2012L, 2003L, 2002L, 2001L, 2001L));
+
+    assertThat(horseDao.getAllById(ids))
+        .extracting(Horse::id)
+        .containsExactly(2001L, 2002L, 2003L, 2012L);
+  }
+
+  /**
+   * Tests that cached horses are never served after they have been updated or deleted.
+   *
+   * @throws Exception if the horse to update or delete does not exist
+   */
+  @Test
+  public void cacheServesNoStaleHorseAfterWrite() throws Exception {
+    Horse created = horseDao.create(new HorseCreateDto("Cached", null, LocalDate.of(2015, 5, 5), Sex.FEMALE, null, null));
+    var missesBefore = horseJdbcDao.getCacheStats().misses();
+    assertThat(horseDao.getById(created.id()).name()).isEqualTo("Cached");
+    assertThat(horseDao.getById(created.id()).name()).isEqualTo("Cached");
+    assertThat(horseJdbcDao.getCacheStats().misses()).isEqualTo(missesBefore + 1);
+
+    horseDao.update(new HorseUpdateDto(created.id(), "Renamed", null, LocalDate.of(2015, 5, 5), Sex.FEMALE, null, null));
+    assertThat(horseDao.getById(created.id()).name()).isEqualTo("Renamed");
+    assertThat(horseDao.getAllById(List.of(created.id())))
+        .extracting(Horse::name)
+        .containsExactly("Renamed");
+
+    horseDao.delete(created.id());
+    org.assertj.core.api.Assertions.assertThatThrownBy(() -> horseDao.getById(created.id()))
+        .isInstanceOf(NotFoundException.class);
+    assertThat(horseDao.getAllById(List.of(created.id()))).isEmpty();
+  }
+
+  private Set<Long> horseIds() {
+    return horseDao.getAll().stream()
+        .map(Horse::id)
+        .collect(Collectors.toSet());
+  }
 }
@@ -2,12 +2,26 @@ package at.ac.tuwien.sepr.assignment.individual.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListWithOwnersDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSummaryDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.service.HorseService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,12 +51,35 @@ public class HorseEndpointTest {
   @Autowired
   private ObjectMapper objectMapper;
 
+  @Autowired
+  private HorseDao horseDao;
+
+  @Autowired
+  private HorseService horseService;
+
+  private Set<Long> existingHorseIds;
+
   /**
-   * Sets up the MockMvc instance before each test.
+   * Sets up the MockMvc instance and remembers the existing horses before each test.
    */
   @BeforeEach
   public void setup() {
     this.mockMvc = MockMvcBuilders.webAppContextSetup(webAppContext).build();
+    existingHorseIds = horseIds();
+  }
+
+  /**
+   * Deletes the horses created by the test through the service, so every test starts from the test data.
+   *
+   * @throws Exception if a horse can not be deleted
+   */
+  @AfterEach
+  public void deleteCreatedHorses() throws Exception {
+    for (long id : horseIds()) {
+      if (!existingHorseIds.contains(id)) {
+        horseService.delete(id);
+      }
+    }
   }
 
   /**
@@ -185,4 +222,86 @@ public class HorseEndpointTest {
             .accept(MediaType.APPLICATION_JSON)
         ).andExpect(status().isNotFound());
   }
+
+  /**
+   * Tests that the export streams all horses ordered by ID, as newline-delimited JSON or as a JSON array.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void exportingHorsesStreamsAllHorses() throws Exception {
+    var started = mockMvc
+        .perform(MockMvcRequestBuilders
+            .get("/horses/export")
+            .accept(MediaType.APPLICATION_NDJSON)
+        ).andExpect(request().asyncStarted())
+        .andReturn();
+    String lines = mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+        .andReturn().getResponse().getContentAsString();
+
+    List<HorseListDto> exported = lines.lines()
+        .map(line -> {
+          try {
+            return objectMapper.readValue(line, HorseListDto.class);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        })
+        .toList();
+    assertThat(exported)
+        .extracting(HorseListDto::id, HorseListDto::name)
+        .contains(tuple(2001L, "Wendy"), tuple(2012L, "Titan"));
+    assertThat(exported).extracting(HorseListDto::id).isSorted();
+    // Owners are joined by the streaming query
+    assertThat(exported).filteredOn(horse -> horse.id() == 2001L).singleElement()
+        .extracting(HorseListDto::owner)
+        .extracting(OwnerDto::id, OwnerDto::firstName, OwnerDto::lastName)
+        .containsExactly(1005L, "Robert", "Wilson");
+
+    started = mockMvc
+        .perform(MockMvcRequestBuilders
+            .get("/horses/export")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(request().asyncStarted())
+        .andReturn();
+    byte[] array = mockMvc
+        .perform(asyncDispatch(started))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsByteArray();
+    assertThat(objectMapper.readerFor(HorseListDto.class).<HorseListDto>readValues(array).readAll())
+        .isEqualTo(exported);
+  }
+
+  /**
+   * Tests that horses can be listed with side-loaded owners, which every horse refers to by ID.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void searchingHorsesWithSideloadedOwners() throws Exception {
+    byte[] body = mockMvc
+        .perform(MockMvcRequestBuilders
+            .get("/horses")
+            .param("sideloadOwners", "true")
+            .param("ownerIds", "1001", "1005")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsByteArray();
+
+    HorseListWithOwnersDto result = objectMapper.readerFor(HorseListWithOwnersDto.class).readValue(body);
+    assertThat(result.horses())
+        .extracting(HorseSummaryDto::id, HorseSummaryDto::ownerId)
+        .containsExactly(tuple(2001L, 1005L), tuple(2002L, 1001L));
+    assertThat(result.owners().keySet()).containsExactlyInAnyOrder(1001L, 1005L);
+    assertThat(result.owners().get(1005L).lastName()).isEqualTo("Wilson");
+  }
+
+  private Set<Long> horseIds() {
+    return horseDao.getAll().stream()
+        .map(Horse::id)
+        .collect(Collectors.toSet());
+  }
 }
@@ -0,0 +1,60 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.HorseSearchCache;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test for {@link HorseSearchCache}, ensuring it stays within its memory bounds.
+ */
+public class HorseSearchCacheTest {
+
+  /**
+   * Tests that a result too large for the cache is returned, but not cached.
+   */
+  @Test
+  public void largeResultsAreNotCached() {
+    var cache = new HorseSearchCache();
+    var search = new HorseSearchDto(null, null, null, null, null, null);
+    var horses = horses(1, 20_000);
+
+    assertThat(cache.get(search, null, () -> horses)).isEqualTo(horses);
+    assertThat(cache.get(search, null, () -> horses)).isEqualTo(horses);
+    assertThat(cache.stats().misses()).isEqualTo(2);
+    assertThat(cache.stats().size()).isZero();
+    assertThat(cache.stats().estimatedBytes()).isZero();
+  }
+
+  /**
+   * Tests that the least recently used results are evicted once the results take up too much memory.
+   */
+  @Test
+  public void leastRecentlyUsedResultsAreEvictedByMemory() {
+    var cache = new HorseSearchCache();
+    var horses = horses(1, 2_000);
+    for (int limit = 1; limit <= 200; limit++) {
+      cache.get(new HorseSearchDto(null, null, null, null, null, limit), null, () -> horses);
+    }
+
+    var stats = cache.stats();
+    assertThat(stats.evictions()).isPositive();
+    assertThat(stats.size()).isLessThan(200);
+    assertThat(stats.estimatedBytes()).isLessThanOrEqualTo(64L * 1024 * 1024);
+    cache.get(new HorseSearchDto(null, null, null, null, null, 200), null, () -> horses);
+    assertThat(cache.stats().hits()).isEqualTo(1);
+  }
+
+  private static List<HorseListDto> horses(long from, int count) {
+    return LongStream.range(from, from + count)
+        .mapToObj(id -> new HorseListDto(id, "Horse " + id, "A horse with a description of some length", LocalDate.of(2020, 1, 1),
+            Sex.FEMALE, null))
+        .toList();
+  }
+}
@@ -1,22 +1,48 @@
 package at.ac.tuwien.sepr.assignment.individual.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.tuple;
 
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseBatchCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCommonAncestorDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCursor;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseFacetsDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseFamilyTreeDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseParentSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseRelationshipDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ParentDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.PedigreeGraph;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSort;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Integration test for {@link HorseService}.
@@ -24,10 +50,45 @@ import org.springframework.test.context.ActiveProfiles;
 @ActiveProfiles({"test", "datagen"}) // Enables "test" Spring profile during test execution
 @SpringBootTest
 public class HorseServiceTest {
+  private static final HorseParentSearchDto NO_PARENT_FILTER = new HorseParentSearchDto(null, null, null, null, null);
 
   @Autowired
   HorseService horseService;
 
+  @Autowired
+  HorseDao horseDao;
+
+  @Autowired
+  PedigreeGraph pedigreeGraph;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  private Set<Long> existingHorseIds;
+
+  /**
+   * Remembers the horses existing before each test, so the horses created by the test can be deleted after it.
+   */
+  @BeforeEach
+  public void rememberExistingHorses() {
+    existingHorseIds = horseIds();
+  }
+
+  /**
+   * Deletes the horses created by the test through the service, so the in-memory indexes stay in sync
+   * and every test starts from the test data.
+   *
+   * @throws Exception if a horse can not be deleted
+   */
+  @AfterEach
+  public void deleteCreatedHorses() throws Exception {
+    for (long id : horseIds()) {
+      if (!existingHorseIds.contains(id)) {
+        horseService.delete(id);
+      }
+    }
+  }
+
   /**
    * Tests whether retrieving all stored horses returns the expected number and specific entries.
    */
@@ -85,7 +146,7 @@ public class HorseServiceTest {
         List.of() // no parents
     );
 
-    org.assertj.core.api.Assertions.assertThatThrownBy(() -> horseService.create(horseToCreate))
+    assertThatThrownBy(() -> horseService.create(horseToCreate))
         .isInstanceOf(ValidationException.class)
         .hasMessageContaining("Validation of horse for create failed")
         .hasMessageContaining("Horse name is mandatory");
@@ -162,7 +223,7 @@ public class HorseServiceTest {
         List.of()
     );
 
-    org.assertj.core.api.Assertions.assertThatThrownBy(() -> horseService.update(horseToUpdate))
+    assertThatThrownBy(() -> horseService.update(horseToUpdate))
         .isInstanceOf(ValidationException.class)
         .hasMessageContaining("Validation of horse for update failed")
         .hasMessageContaining("Horse name is mandatory");
@@ -233,7 +294,7 @@ public class HorseServiceTest {
         List.of()
     );
 
-    org.assertj.core.api.Assertions.assertThatThrownBy(() -> {
+    assertThatThrownBy(() -> {
       HorseDetailDto parent = horseService.create(parentDto);
 
       // Try to create a horse with the same horse as both parents
@@ -277,7 +338,7 @@ public class HorseServiceTest {
         List.of()
     );
 
-    org.assertj.core.api.Assertions.assertThatThrownBy(() -> {
+    assertThatThrownBy(() -> {
       HorseDetailDto parent1 = horseService.create(parent1Dto);
       HorseDetailDto parent2 = horseService.create(parent2Dto);
 
@@ -331,7 +392,7 @@ public class HorseServiceTest {
         List.of()
     );
 
-    org.assertj.core.api.Assertions.assertThatThrownBy(() -> {
+    assertThatThrownBy(() -> {
       HorseDetailDto parent1 = horseService.create(parent1Dto);
       HorseDetailDto parent2 = horseService.create(parent2Dto);
       HorseDetailDto parent3 = horseService.create(parent3Dto);
@@ -418,4 +479,448 @@ public class HorseServiceTest {
     // All female horses should be female
     femaleHorses.forEach(horse -> assertThat(horse.sex()).isEqualTo(Sex.FEMALE));
   }
+
+  /**
+   * Tests that the family tree contains all ancestors up to the maximum generations, with mothers and fathers assigned by sex.
+   *
+   * @throws Exception if loading the family tree fails
+   */
+  @Test
+  public void getFamilyTreeContainsAncestorsUpToMaxGenerations() throws Exception {
+    HorseFamilyTreeDto tree = horseService.getFamilyTree(2009L, 3);
+
+    assertThat(tree.name()).isEqualTo("Nova");
+    assertThat(tree.mother().name()).isEqualTo("Wendy");
+    assertThat(tree.mother().mother().name()).isEqualTo("Lightning");
+    assertThat(tree.mother().father().name()).isEqualTo("Thunder");
+    assertThat(tree.father().name()).isEqualTo("Comet");
+    assertThat(tree.father().mother().name()).isEqualTo("Blaze");
+    assertThat(tree.father().father().name()).isEqualTo("Storm");
+    assertThat(tree.father().father().mother()).isNull();
+    assertThat(tree.father().father().father()).isNull();
+
+    HorseFamilyTreeDto shallowTree = horseService.getFamilyTree(2009L, 1);
+    assertThat(shallowTree.mother()).isNull();
+    assertThat(shallowTree.father()).isNull();
+  }
+
+  /**
+   * Tests that the descendants of a horse are listed by generation and can be filtered,
+   * without losing the descendants of horses that are filtered out.
+   *
+   * @throws Exception if loading the descendants fails
+   */
+  @Test
+  public void getDescendantsListsDescendantsByGeneration() throws Exception {
+    List<HorseDescendantDto> descendants = horseService.getDescendants(2002L, 2, new HorseDescendantSearchDto(null, null, null))
+        .toList();
+    assertThat(descendants)
+        .extracting(HorseDescendantDto::id, HorseDescendantDto::generation)
+        .containsExactly(tuple(2001L, 1), tuple(2008L, 1), tuple(2009L, 2), tuple(2010L, 2), tuple(2011L, 2));
+    assertThat(descendants.getLast().parentIds()).containsExactly(2001L, 2008L); // Luna descends from Wendy and Rocket
+
+    List<HorseDescendantDto> fillies = horseService.getDescendants(2002L, 2,
+            new HorseDescendantSearchDto(LocalDate.of(2015, 1, 1), null, Sex.FEMALE))
+        .toList();
+    assertThat(fillies)
+        .extracting(HorseDescendantDto::id)
+        .containsExactly(2009L, 2011L);
+
+    assertThatThrownBy(() -> horseService.getDescendants(2002L, 11, new HorseDescendantSearchDto(null, null, null)))
+        .isInstanceOf(ValidationException.class);
+  }
+
+  /**
+   * Tests that relationships between horses of the test data are named after their closest common ancestors.
+   *
+   * @throws Exception if finding a relationship fails
+   */
+  @Test
+  public void getRelationshipNamesClosestCommonAncestors() throws Exception {
+    HorseRelationshipDto siblings = horseService.getRelationship(2001L, 2008L, 10);
+    assertThat(siblings.relationship()).isEqualTo("half-siblings");
+    assertThat(siblings.commonAncestors())
+        .extracting(HorseCommonAncestorDto::id, HorseCommonAncestorDto::firstDistance, HorseCommonAncestorDto::secondDistance)
+        .containsExactly(tuple(2002L, 1, 1));
+
+    assertThat(horseService.getRelationship(2002L, 2010L, 10).relationship()).isEqualTo("grandparent");
+    assertThat(horseService.getRelationship(2001L, 2010L, 10).relationship()).isEqualTo("half-aunt");
+    assertThat(horseService.getRelationship(2011L, 2012L, 10).relationship()).isEqualTo("half first cousins");
+    assertThat(horseService.getRelationship(2003L, 2004L, 10).relationship()).isEqualTo("unrelated");
+    // Luna's and Titan's common grandparents are out of reach within a single generation
+    assertThat(horseService.getRelationship(2011L, 2012L, 1).relationship()).isEqualTo("unrelated");
+  }
+
+  /**
+   * Tests that substring searches reflect horses being renamed and deleted.
+   *
+   * @throws Exception if creating, updating or deleting the horse fails
+   */
+  @Test
+  public void searchReflectsUpdatedAndDeletedHorses() throws Exception {
+    HorseDetailDto created = horseService.create(
+        new HorseCreateDto("Quicksilverine", "Dapple grey", LocalDate.of(2016, 3, 3), Sex.MALE, null, List.of()));
+    assertThat(horseService.searchHorses(new HorseSearchDto("SILVERINE", "grey", null, null, null, null)))
+        .extracting(HorseListDto::id)
+        .containsExactly(created.id());
+
+    horseService.update(
+        new HorseUpdateDto(created.id(), "Goldenrodine", "Dapple grey", LocalDate.of(2016, 3, 3), Sex.MALE, null, null));
+    assertThat(horseService.searchHorses(new HorseSearchDto("silverine", null, null, null, null, null))).isEmpty();
+    assertThat(horseService.searchParents("denrodi", NO_PARENT_FILTER))
+        .extracting(HorseListDto::id)
+        .containsExactly(created.id());
+
+    horseService.delete(created.id());
+    assertThat(horseService.searchParents("denrodi", NO_PARENT_FILTER)).isEmpty();
+  }
+
+  /**
+   * Tests that a full-text query ranks horses by the relevance of their description and respects the other filters.
+   */
+  @Test
+  public void searchWithQueryRanksByRelevance() {
+    assertThat(horseService.searchHorses(search().query("Powerful stallion").build()))
+        .extracting(HorseListDto::id)
+        .containsExactly(2004L, 2008L, 2012L);
+    assertThat(horseService.searchHorses(search().limit(2).query("powerful stallion").build()))
+        .extracting(HorseListDto::id)
+        .containsExactly(2004L, 2008L);
+    assertThat(horseService.searchHorses(search().name("o").query("powerful stallion").build()))
+        .extracting(HorseListDto::id)
+        .containsExactly(2004L, 2008L);
+    assertThat(horseService.searchHorses(search().sex(Sex.MALE).query("mare").build())).isEmpty();
+  }
+
+  /**
+   * Tests that parent candidates starting with the search term come before candidates only containing it.
+   *
+   * @throws Exception if the search fails
+   */
+  @Test
+  public void searchParentsRanksPrefixMatchesFirst() throws Exception {
+    assertThat(horseService.searchParents("T", NO_PARENT_FILTER))
+        .extracting(HorseListDto::name)
+        .containsExactly("Thunder", "Titan", "Lightning", "Storm", "Comet");
+    assertThat(horseService.searchParents("li", NO_PARENT_FILTER))
+        .extracting(HorseListDto::name)
+        .containsExactly("Lightning", "Blitz");
+  }
+
+  /**
+   * Tests that parent candidates only include horses that are valid parents for the child.
+   *
+   * @throws Exception if the search fails
+   */
+  @Test
+  public void searchParentsOnlySuggestsValidParents() throws Exception {
+    // Titan and Blitz are born after Wendy, Lightning is a mare
+    assertThat(horseService.searchParents("t", new HorseParentSearchDto(null, LocalDate.of(2012, 12, 12), Sex.MALE, null, null)))
+        .extracting(HorseListDto::name)
+        .containsExactly("Thunder", "Storm", "Comet", "Rocket");
+    // Thunder itself, its descendants Wendy, Nova and Luna, and the excluded Titan are left out
+    assertThat(horseService.searchParents("n", new HorseParentSearchDto(2002L, LocalDate.of(2030, 1, 1), null, List.of(2012L), null)))
+        .extracting(HorseListDto::name)
+        .containsExactly("Lightning");
+    // Without a date of birth, the one of the persisted child is used
+    assertThat(horseService.searchParents("ti", new HorseParentSearchDto(2001L, null, null, null, null))).isEmpty();
+  }
+
+  /**
+   * Tests that fuzzy searches find misspelled names, while plain searches do not.
+   *
+   * @throws Exception if the search fails
+   */
+  @Test
+  public void fuzzySearchFindsMisspelledNames() throws Exception {
+    assertThat(horseService.searchHorses(new HorseSearchDto("Thundr", null, null, null, null, null))).isEmpty();
+    assertThat(horseService.searchHorses(search().name("Thundr").fuzzy().build()))
+        .extracting(HorseListDto::id)
+        .containsExactly(2002L);
+    assertThat(horseService.searchHorses(search().name("Lightening").sex(Sex.MALE).fuzzy().build())).isEmpty();
+    assertThat(horseService.searchParents("Lightening", new HorseParentSearchDto(null, null, null, null, true)))
+        .extracting(HorseListDto::id)
+        .containsExactly(2003L);
+  }
+
+  /**
+   * Tests that several owners and a range of birth years are combined with each other and with the other filters.
+   */
+  @Test
+  public void searchByOwnersAndBirthYears() {
+    var owners = List.of(1001L, 1002L, 1003L, 1006L);
+    assertThat(horseService.searchHorses(search().ownerIds(owners).birthYears(2000, 2010).build()))
+        .extracting(HorseListDto::id)
+        .containsExactly(2002L, 2003L, 2006L);
+    assertThat(horseService.searchHorses(search().sex(Sex.MALE).ownerIds(owners).birthYears(2000, null).build()))
+        .extracting(HorseListDto::id)
+        .containsExactly(2002L, 2006L);
+    assertThat(horseService.searchHorses(search().name("o").ownerIds(owners).birthYears(null, 2010).build()))
+        .extracting(HorseListDto::id)
+        .containsExactly(2004L, 2006L);
+    assertThat(horseService.searchHorses(search().bornBefore(LocalDate.of(2001, 1, 1)).ownerName("smith").ownerIds(owners).build()))
+        .extracting(HorseListDto::id)
+        .containsExactly(2002L);
+    assertThat(horseService.searchHorses(search().ownerName("smith").ownerIds(List.of(1002L)).build())).isEmpty();
+  }
+
+  /**
+   * Tests that horses are filtered by a range of dates of birth, excluding both bounds.
+   */
+  @Test
+  public void searchByRangeOfBirthDates() {
+    assertThat(horseService.searchHorses(search().bornAfter(LocalDate.of(2019, 6, 15)).build()))
+        .extracting(HorseListDto::id)
+        .containsExactly(2011L, 2012L);
+    assertThat(horseService.searchHorses(search().bornAfter(LocalDate.of(2000, 3, 15)).bornBefore(LocalDate.of(2011, 9, 14)).sex(Sex.MALE).build()))
+        .extracting(HorseListDto::id)
+        .containsExactly(2006L, 2008L);
+    assertThat(horseService.searchHorses(search().birthYears(2020, 2020).bornAfter(LocalDate.of(2020, 2, 28)).build()))
+        .isEmpty();
+  }
+
+  /**
+   * Tests that repeated searches are answered from the cache, also when spelled differently, until a horse is written.
+   *
+   * @throws Exception if the creation or deletion fails
+   */
+  @Test
+  public void repeatedSearchesAreCachedUntilNextWrite() throws Exception {
+    var search = new HorseSearchDto("Cached", null, null, null, null, null);
+    assertThat(horseService.searchHorses(search)).isEmpty();
+    var before = horseService.getSearchCacheStats();
+    assertThat(horseService.searchHorses(new HorseSearchDto("  cACHED ", null, null, null, null, 0))).isEmpty();
+    assertThat(horseService.getSearchCacheStats().hits()).isEqualTo(before.hits() + 1);
+
+    HorseDetailDto created = horseService.create(new HorseCreateDto("Cached Horse", null, LocalDate.of(2020, 5, 15), Sex.MALE, null, List.of()));
+    assertThat(horseService.searchHorses(search))
+        .extracting(HorseListDto::id)
+        .containsExactly(created.id());
+    horseService.delete(created.id());
+    assertThat(horseService.searchHorses(search)).isEmpty();
+    assertThat(horseService.getSearchCacheStats().generation()).isEqualTo(before.generation() + 2);
+  }
+
+  /**
+   * Tests that facets count the matching horses, and that the counts of all horses follow every write.
+   *
+   * @throws Exception if the creation or deletion fails
+   */
+  @Test
+  public void facetsCountMatchingHorses() throws Exception {
+    var owners = List.of(1001L, 1002L, 1003L, 1006L);
+    var facets = horseService.getFacets(search().limit(1).ownerIds(owners).birthYears(2000, 2010).build());
+    assertThat(facets.total()).isEqualTo(3);
+    assertThat(facets.sexes()).isEqualTo(Map.of(Sex.MALE, 2L, Sex.FEMALE, 1L));
+    assertThat(facets.birthDecades()).isEqualTo(Map.of(2000, 2L, 2010, 1L));
+    assertThat(facets.owners()).isEqualTo(Map.of(1001L, 1L, 1002L, 1L, 1006L, 1L));
+
+    facets = horseService.getFacets(new HorseSearchDto(null, "Powerful", null, Sex.MALE, null, null));
+    assertThat(facets.total()).isEqualTo(2);
+    assertThat(facets.birthDecades()).isEqualTo(Map.of(1990, 1L, 2000, 1L));
+    assertThat(facets.owners()).isEqualTo(Map.of(1003L, 1L, 1008L, 1L));
+
+    var all = horseService.getFacets(new HorseSearchDto(null, null, null, null, null, null));
+    HorseDetailDto created = horseService.create(new HorseCreateDto("Facet Horse", null, LocalDate.of(1985, 5, 15), Sex.MALE, null, List.of()));
+    assertThat(horseService.getFacets(new HorseSearchDto(null, null, null, null, null, null)))
+        .extracting(HorseFacetsDto::total, facet -> facet.birthDecades().get(1980), HorseFacetsDto::withoutOwner)
+        .containsExactly(all.total() + 1, all.birthDecades().getOrDefault(1980, 0L) + 1, all.withoutOwner() + 1);
+    horseService.delete(created.id());
+    assertThat(horseService.getFacets(new HorseSearchDto(null, null, null, null, null, null))).isEqualTo(all);
+  }
+
+  /**
+   * Tests that following the cursors through pages of horses ordered by name or by date of birth returns every horse once, in order.
+   */
+  @Test
+  public void pagesFollowCursorsInSortOrder() {
+    var owners = List.of(1001L, 1002L, 1003L, 1004L, 1005L, 1006L);
+    assertThat(allPages(owners, HorseSort.NAME)).containsExactly(2005L, 2006L, 2003L, 2004L, 2002L, 2001L);
+    assertThat(allPages(owners, HorseSort.DATE_OF_BIRTH)).containsExactly(2004L, 2002L, 2003L, 2005L, 2006L, 2001L);
+    assertThat(allPages(owners, null)).containsExactly(2001L, 2002L, 2003L, 2004L, 2005L, 2006L);
+  }
+
+  /**
+   * Tests that only the requested fields of horses are loaded, and that owners and parents are only loaded if requested.
+   *
+   * @throws Exception if the horse is not found
+   */
+  @Test
+  public void onlyRequestedFieldsAreLoaded() throws Exception {
+    var fields = HorseField.parse("name, sex");
+    var horses = horseService.searchHorses(search().ownerIds(List.of(1005L)).build(), fields).toList();
+    assertThat(horses).containsExactly(new HorseListDto(2001L, "Wendy", null, null, Sex.FEMALE, null));
+    assertThat(horseService.selectFields(horses, fields)).containsExactly(Map.of("id", 2001L, "name", "Wendy", "sex", Sex.FEMALE));
+
+    var wendy = horseService.getById(2001L, HorseField.parse("owner"));
+    assertThat(wendy.keySet()).containsExactly("id", "owner");
+    assertThat(((OwnerDto) wendy.get("owner")).id()).isEqualTo(1005L);
+    assertThat(horseService.getById(2001L, HorseField.parse("parents")).get("parents"))
+        .asInstanceOf(InstanceOfAssertFactories.list(ParentDto.class))
+        .extracting(parent -> parent.horse().id())
+        .containsExactlyInAnyOrder(2002L, 2003L);
+  }
+
+  /**
+   * Tests that a batch of horses is created with parents within the batch and existing parents,
+   * and that an invalid batch is rejected as a whole.
+   *
+   * @throws Exception if the creation or deletion fails
+   */
+  @Test
+  public void createBatchWithParentsWithinTheBatch() throws Exception {
+    var created = horseService.createAll(List.of(
+        new HorseBatchCreateDto("mare", "Batch Mare", null, LocalDate.of(2012, 4, 1), Sex.FEMALE, null, List.of(2002L), null),
+        new HorseBatchCreateDto(null, "Batch Foal", null, LocalDate.of(2021, 4, 1), Sex.MALE, null, List.of(2008L), List.of("mare"))));
+    assertThat(created).extracting(HorseDetailDto::name).containsExactly("Batch Mare", "Batch Foal");
+    var mare = created.get(0);
+    var foal = created.get(1);
+    assertThat(foal.parents())
+        .extracting(parent -> parent.horse().id(), ParentDto::relationship)
+        .containsExactlyInAnyOrder(tuple(mare.id(), "mother"), tuple(2008L, "father"));
+    assertThat(horseService.getFamilyTree(foal.id(), 3).mother().father().id()).isEqualTo(2002L);
+
+    assertThatThrownBy(() -> horseService.createAll(List.of(
+        new HorseBatchCreateDto(null, "Batch Orphan", null, LocalDate.of(2021, 4, 1), Sex.MALE, null, null, null),
+        new HorseBatchCreateDto(null, "Batch Foal", null, LocalDate.of(2021, 4, 1), Sex.MALE, null, null, List.of("unknown")))))
+        .isInstanceOf(ValidationException.class);
+    assertThat(horseService.searchHorses(new HorseSearchDto("Batch Orphan", null, null, null, null, null))).isEmpty();
+
+    horseService.delete(foal.id());
+    horseService.delete(mare.id());
+  }
+
+  /**
+   * Tests that a batch rolled back with its transaction leaves the search index, the pedigree graph and the search cache untouched.
+   *
+   * @throws Exception if the search fails
+   */
+  @Test
+  public void rolledBackBatchLeavesIndexesUntouched() throws Exception {
+    final long generation = horseService.getSearchCacheStats().generation();
+    List<HorseDetailDto> created = new ArrayList<>();
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      try {
+        created.addAll(horseService.createAll(List.of(
+            new HorseBatchCreateDto("mare", "Rollback Mare", null, LocalDate.of(2012, 4, 1), Sex.FEMALE, null, List.of(2002L), null),
+            new HorseBatchCreateDto(null, "Rollback Foal", null, LocalDate.of(2021, 4, 1), Sex.MALE, null, List.of(2008L), List.of("mare")))));
+      } catch (ValidationException | ConflictException e) {
+        throw new IllegalStateException(e);
+      }
+      status.setRollbackOnly();
+    });
+
+    assertThat(created).hasSize(2);
+    assertThat(horseIds()).doesNotContainAnyElementsOf(created.stream().map(HorseDetailDto::id).toList());
+    assertThat(horseService.searchParents("Rollback", NO_PARENT_FILTER)).isEmpty();
+    assertThat(created).allSatisfy(horse -> assertThat(pedigreeGraph.getParentIds(horse.id())).isEmpty());
+    assertThat(horseService.getSearchCacheStats().generation()).isEqualTo(generation);
+  }
+
+  private List<Long> allPages(List<Long> owners, HorseSort sort) {
+    List<Long> ids = new ArrayList<>();
+    HorseCursor cursor = null;
+    do {
+      var search = search().limit(4).ownerIds(owners).sort(sort).cursor(cursor).build();
+      var page = horseService.searchHorses(search).toList();
+      page.forEach(horse -> ids.add(horse.id()));
+      cursor = horseService.nextCursor(search, page);
+    } while (cursor != null);
+    return ids;
+  }
+
+  private static SearchBuilder search() {
+    return new SearchBuilder();
+  }
+
+  /**
+   * Builds search parameters from the filters that are set, all other parameters are null.
+   */
+  private static final class SearchBuilder {
+    private String name;
+    private LocalDate bornBefore;
+    private Sex sex;
+    private String ownerName;
+    private Integer limit;
+    private String query;
+    private Boolean fuzzy;
+    private List<Long> ownerIds;
+    private Integer birthYearFrom;
+    private Integer birthYearTo;
+    private LocalDate bornAfter;
+    private HorseSort sort;
+    private HorseCursor cursor;
+
+    SearchBuilder name(String name) {
+      this.name = name;
+      return this;
+    }
+
+    SearchBuilder bornBefore(LocalDate bornBefore) {
+      this.bornBefore = bornBefore;
+      return this;
+    }
+
+    SearchBuilder sex(Sex sex) {
+      this.sex = sex;
+      return this;
+    }
+
+    SearchBuilder ownerName(String ownerName) {
+      this.ownerName = ownerName;
+      return this;
+    }
+
+    SearchBuilder limit(int limit) {
+      this.limit = limit;
+      return this;
+    }
+
+    SearchBuilder query(String query) {
+      this.query = query;
+      return this;
+    }
+
+    SearchBuilder fuzzy() {
+      this.fuzzy = true;
+      return this;
+    }
+
+    SearchBuilder ownerIds(List<Long> ownerIds) {
+      this.ownerIds = ownerIds;
+      return this;
+    }
+
+    SearchBuilder birthYears(Integer from, Integer to) {
+      this.birthYearFrom = from;
+      this.birthYearTo = to;
+      return this;
+    }
+
+    SearchBuilder bornAfter(LocalDate bornAfter) {
+      this.bornAfter = bornAfter;
+      return this;
+    }
+
+    SearchBuilder sort(HorseSort sort) {
+      this.sort = sort;
+      return this;
+    }
+
+    SearchBuilder cursor(HorseCursor cursor) {
+      this.cursor = cursor;
+      return this;
+    }
+
+    HorseSearchDto build() {
+      return new HorseSearchDto(name, null, bornBefore, sex, ownerName, limit, query, fuzzy, ownerIds, birthYearFrom, birthYearTo,
+          bornAfter, sort, cursor);
+    }
+  }
+
+  private Set<Long> horseIds() {
+    return horseDao.getAll().stream()
+        .map(Horse::id)
+        .collect(Collectors.toSet());
+  }
 }
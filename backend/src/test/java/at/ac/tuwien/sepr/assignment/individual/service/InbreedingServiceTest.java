@@ -0,0 +1,163 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.PedigreeGraph;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration test for {@link InbreedingService}, including a benchmark on a synthetic pedigree with deep line-breeding.
+ */
+@ActiveProfiles({"test", "datagen"})
+@SpringBootTest
+public class InbreedingServiceTest {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int LINE_BREEDING_GENERATIONS = 30;
+  private static final int LINE_BREEDING_POPULATION = 8;
+
+  @Autowired
+  InbreedingService inbreedingService;
+
+  @Autowired
+  HorseService horseService;
+
+  @Autowired
+  PedigreeGraph pedigreeGraph;
+
+  private final List<Long> createdHorseIds = new ArrayList<>();
+
+  /**
+   * Deletes the horses created by the test, so the other tests still start from the test data.
+   *
+   * @throws Exception if a horse can not be deleted
+   */
+  @AfterEach
+  public void deleteCreatedHorses() throws Exception {
+    for (long id : createdHorseIds.reversed()) {
+      horseService.delete(id);
+    }
+    createdHorseIds.clear();
+  }
+
+  /**
+   * Tests the coefficient of inbreeding of the horses in the test data.
+   *
+   * @throws Exception if computing the coefficient fails
+   */
+  @Test
+  public void coefficientOfTestData() throws Exception {
+    // Luna's parents Wendy and Rocket are half-siblings through Thunder
+    assertThat(inbreedingService.getInbreeding(2011L, 10).coefficient()).isEqualTo(0.125);
+    // Nova's parents Wendy and Comet are unrelated
+    assertThat(inbreedingService.getInbreeding(2009L, 10).coefficient()).isEqualTo(0.0);
+    // The common grandsire is out of reach within a single generation
+    assertThat(inbreedingService.getInbreeding(2011L, 1).coefficient()).isEqualTo(0.0);
+
+    org.assertj.core.api.Assertions.assertThatThrownBy(() -> inbreedingService.getInbreeding(2011L, 31))
+        .isInstanceOf(ValidationException.class);
+  }
+
+  /**
+   * Tests that the memoized computation agrees with the naive recursion on a small population bred
+   * among itself for {@value #LINE_BREEDING_GENERATIONS} generations, and logs the timings of both.
+   * The naive recursion follows every path through the collapsed pedigree, so it is only run on few generations.
+   *
+   * @throws Exception if creating the pedigree or computing the coefficient fails
+   */
+  @Test
+  @Tag("benchmark")
+  public void lineBreedingBenchmark() throws Exception {
+    Random random = new Random(4711);
+    List<Long> generation = new ArrayList<>();
+    for (int i = 0; i < LINE_BREEDING_POPULATION; i++) {
+      generation.add(createHorse(0, i, List.of()));
+    }
+    for (int depth = 1; depth <= LINE_BREEDING_GENERATIONS; depth++) {
+      List<Long> children = new ArrayList<>();
+      for (int i = 0; i < LINE_BREEDING_POPULATION; i++) {
+        // Even positions are stallions, odd positions mares
+        long sire = generation.get(2 * random.nextInt(LINE_BREEDING_POPULATION / 2));
+        long dam = generation.get(2 * random.nextInt(LINE_BREEDING_POPULATION / 2) + 1);
+        children.add(createHorse(depth, i, List.of(sire, dam)));
+      }
+      generation = children;
+    }
+    long horseId = generation.getFirst();
+
+    for (int generations = 4; generations <= 10; generations += 2) {
+      long memoizedStart = System.nanoTime();
+      double memoized = inbreedingService.getInbreeding(horseId, generations).coefficient();
+      long memoizedNanos = System.nanoTime() - memoizedStart;
+      long naiveStart = System.nanoTime();
+      double naive = naiveCoefficient(horseId, generations);
+      long naiveNanos = System.nanoTime() - naiveStart;
+
+      assertThat(memoized).isCloseTo(naive, within(1e-12));
+      LOG.info("Line-breeding over {} generations: memoized {} µs, naive {} µs",
+          generations, memoizedNanos / 1000, naiveNanos / 1000);
+    }
+
+    long start = System.nanoTime();
+    double coefficient = inbreedingService.getInbreeding(horseId, LINE_BREEDING_GENERATIONS).coefficient();
+    long nanos = System.nanoTime() - start;
+    assertThat(coefficient).isBetween(0.5, 1.0);
+    LOG.info("Line-breeding over {} generations: memoized {} µs, coefficient {}",
+        LINE_BREEDING_GENERATIONS, nanos / 1000, coefficient);
+  }
+
+  private long createHorse(int depth, int index, List<Long> parentIds) throws Exception {
+    long id = horseService.create(new HorseCreateDto(
+        "Line-breeding %d-%d".formatted(depth, index),
+        null,
+        LocalDate.of(1900 + 3 * depth, 1, 1),
+        index % 2 == 0 ? Sex.MALE : Sex.FEMALE,
+        null,
+        parentIds)).id();
+    createdHorseIds.add(id);
+    return id;
+  }
+
+  private double naiveCoefficient(long horseId, int generations) {
+    long[] parentIds = pedigreeGraph.getParentIds(horseId);
+    return parentIds.length < 2 ? 0 : naiveKinship(parentIds[0], 1, parentIds[1], 1, generations);
+  }
+
+  /**
+   * Computes the kinship without memoization, truncating the pedigree per path.
+   * On this pedigree, where every generation only has parents in the previous one, that is the same truncation
+   * as the service's, since every horse is only reachable over paths of the same length.
+   */
+  private double naiveKinship(long first, int firstDepth, long second, int secondDepth, int generations) {
+    if (first == second) {
+      return (1 + (firstDepth < generations ? naiveCoefficient(first, generations - firstDepth) : 0)) / 2;
+    }
+    // Horses are created oldest generation first, so the higher ID cannot be an ancestor of the lower one
+    if (first < second) {
+      return naiveKinship(second, secondDepth, first, firstDepth, generations);
+    }
+    if (firstDepth >= generations) {
+      return 0;
+    }
+    double kinship = 0;
+    for (long parentId : pedigreeGraph.getParentIds(first)) {
+      kinship += naiveKinship(parentId, firstDepth + 1, second, secondDepth, generations);
+    }
+    return kinship / 2;
+  }
+}
@@ -4,7 +4,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.OwnerCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -132,4 +134,43 @@ public class OwnerServiceTest {
         .isInstanceOf(ValidationException.class)
         .hasMessageContaining("Owner last name is mandatory");
   }
+
+  /**
+   * Tests that owners read through the cache reflect newly created owners.
+   *
+   * @throws Exception if an owner is not found
+   */
+  @Test
+  public void cachedOwnersReflectCreatedOwners() throws Exception {
+    assertThat(ownerService.getById(1001L).firstName()).isEqualTo("John");
+
+    OwnerDto createdOwner = ownerService.create(new OwnerCreateDto("Cache", "Owner", null));
+
+    assertThat(ownerService.getById(createdOwner.id())).isEqualTo(createdOwner);
+    assertThat(ownerService.getAllById(List.of(1001L, createdOwner.id())))
+        .containsOnlyKeys(1001L, createdOwner.id())
+        .containsEntry(createdOwner.id(), createdOwner);
+  }
+
+  /**
+   * Tests that owners starting with the search term come first, and that created owners are found right away.
+   */
+  @Test
+  public void searchRanksPrefixMatchesFirstAndFindsCreatedOwners() throws ValidationException {
+    assertThat(ownerService.search(new OwnerSearchDto("j", null)))
+        .extracting(OwnerDto::id)
+        .containsExactly(1009L, 1008L, 1001L, 1002L);
+    assertThat(ownerService.search(new OwnerSearchDto("SON", 2)))
+        .extracting(OwnerDto::id)
+        .containsExactly(1002L, 1005L);
+    // A blank name matches every owner
+    assertThat(ownerService.search(new OwnerSearchDto("  ", 3)))
+        .hasSize(3);
+
+    OwnerDto createdOwner = ownerService.create(new OwnerCreateDto("Quintessa", "Vaughn", null));
+
+    assertThat(ownerService.search(new OwnerSearchDto("tessa vau", 5)))
+        .extracting(OwnerDto::id)
+        .containsExactly(createdOwner.id());
+  }
 }
@@ -0,0 +1,76 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import at.ac.tuwien.sepr.assignment.individual.service.impl.PedigreeGraph;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Test for {@link PedigreeGraph}, ensuring it reflects the parent relationships and stays compact.
+ */
+@ActiveProfiles({"test", "datagen"})
+@SpringBootTest
+public class PedigreeGraphTest {
+
+  @Autowired
+  PedigreeGraph pedigreeGraph;
+
+  /**
+   * Tests that the graph is loaded with the parent relationships of the test data at startup.
+   */
+  @Test
+  public void graphIsLoadedAtStartup() {
+    assertThat(pedigreeGraph.getParentIds(2009L)).containsExactly(2001L, 2006L); // Nova
+    assertThat(pedigreeGraph.getParentIds(2002L)).isEmpty(); // Thunder has no parents
+    assertThat(pedigreeGraph.isAncestor(2002L, 2009L)).isTrue(); // Thunder is the grandfather of Nova
+    assertThat(pedigreeGraph.isAncestor(2009L, 2002L)).isFalse();
+  }
+
+  /**
+   * Tests that removing a horse also removes it as parent of its children, keeping all other horses reachable.
+   */
+  @Test
+  public void removeHorseRemovesItAsParent() {
+    var graph = new PedigreeGraph(null);
+    for (long horseId = 1; horseId <= 1_000; horseId++) {
+      graph.setParents(horseId, List.of(horseId + 1_000, horseId % 2 == 0 ? 5_000L : 6_000L));
+    }
+
+    graph.removeHorse(5_000L);
+    graph.removeHorse(1L);
+    graph.setParents(3L, List.of());
+
+    assertThat(graph.size()).isEqualTo(998);
+    assertThat(graph.getParentIds(1L)).isEmpty();
+    assertThat(graph.getParentIds(2L)).containsExactly(1_002L);
+    assertThat(graph.getParentIds(3L)).isEmpty();
+    assertThat(graph.getChildIds(5_000L)).isEmpty();
+    assertThat(graph.getChildIds(6_000L)).hasSize(498).doesNotContain(1L, 3L);
+    for (long horseId = 4; horseId <= 1_000; horseId++) {
+      assertThat(graph.getParentIds(horseId)).startsWith(horseId + 1_000);
+    }
+  }
+
+  /**
+   * Documents the footprint of the graph: a million horses with two parents each take up 112 MiB,
+   * 48 MiB for the parents and 64 MiB for the index of children.
+   */
+  @Test
+  @Tag("benchmark")
+  public void footprintPerMillionHorses() {
+    var graph = new PedigreeGraph(null);
+    for (long horseId = 1; horseId <= 1_000_000; horseId++) {
+      graph.setParents(horseId, List.of(horseId + 1_000_000, horseId + 2_000_000));
+    }
+
+    assertThat(graph.size()).isEqualTo(1_000_000);
+    assertThat(graph.getParentIds(123_456L)).containsExactly(1_123_456L, 2_123_456L);
+    assertThat(graph.getChildIds(1_123_456L)).containsExactly(123_456L);
+    assertThat(graph.footprintInBytes()).isEqualTo(112L * 1024 * 1024);
+  }
+}